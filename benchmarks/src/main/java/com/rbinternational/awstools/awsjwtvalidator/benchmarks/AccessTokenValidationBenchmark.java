@@ -0,0 +1,107 @@
+package com.rbinternational.awstools.awsjwtvalidator.benchmarks;
+
+import com.auth0.jwk.JwkProvider;
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbAccessTokenValidator;
+import com.rbinternational.awstools.awsjwtvalidator.CachingJwkProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RS256 Cognito access tokens through {@link AWSAlbAccessTokenValidator}, with the JWK served by an in-memory
+ * {@link JwkProvider} behind the same 5 keys / 5 days cache the validator uses by default. The warm cases share one
+ * validator whose key cache is already populated, the cold cases get a new validator for every token.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessTokenValidationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Keys {
+
+        KeyPair keyPair;
+
+        String token;
+
+        JwkProvider jwkProvider;
+
+        @Setup
+        public void setup() {
+            this.keyPair = BenchmarkTokens.cognitoKeyPair();
+            this.token = BenchmarkTokens.accessToken(this.keyPair);
+            this.jwkProvider = new InMemoryJwkProvider(BenchmarkTokens.COGNITO_KEY_ID,
+                    (RSAPublicKey) this.keyPair.getPublic());
+        }
+
+        AWSAlbAccessTokenValidator newValidator() {
+            return new AWSAlbAccessTokenValidator(BenchmarkTokens.COGNITO_URL,
+                    new CachingJwkProvider(this.jwkProvider, 5, Duration.ofDays(5)));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WarmCache {
+
+        AWSAlbAccessTokenValidator validator;
+
+        @Setup
+        public void setup(Keys keys) {
+            this.validator = keys.newValidator();
+            this.validator.validateToken(keys.token);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ColdCache {
+
+        AWSAlbAccessTokenValidator validator;
+
+        @Setup(Level.Invocation)
+        public void setup(Keys keys) {
+            this.validator = keys.newValidator();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Jws<Claims> warmCacheSingleThreaded(Keys keys, WarmCache cache) {
+        return cache.validator.validateToken(keys.token);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Jws<Claims> warmCacheContended(Keys keys, WarmCache cache) {
+        return cache.validator.validateToken(keys.token);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Jws<Claims> coldCacheSingleThreaded(Keys keys, ColdCache cache) {
+        return cache.validator.validateToken(keys.token);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Jws<Claims> coldCacheContended(Keys keys, ColdCache cache) {
+        return cache.validator.validateToken(keys.token);
+    }
+}
@@ -0,0 +1,79 @@
+package com.rbinternational.awstools.awsjwtvalidator.benchmarks;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key pairs and signed tokens shaped like the ones the AWS ALB forwards: an ES256 user claims token
+ * (<code>x-amzn-oidc-data</code>) and an RS256 Cognito access token (<code>x-amzn-oidc-accesstoken</code>).
+ */
+final class BenchmarkTokens {
+
+    static final String ALB_KEY_ID = "0b6fd1b2-c0f7-4c1f-a2a5-0d1d8e3a2f55";
+
+    static final String COGNITO_KEY_ID = "cognito-benchmark-kid";
+
+    static final String COGNITO_URL = "https://cognito-idp.eu-central-1.amazonaws.com/eu-central-1_benchmark";
+
+    static final String ALB_ENDPOINT = "https://public-keys.auth.elb.eu-central-1.amazonaws.com";
+
+    private static final long VALIDITY = TimeUnit.HOURS.toMillis(1);
+
+    private BenchmarkTokens() {
+    }
+
+    static KeyPair albKeyPair() {
+        return Keys.keyPairFor(SignatureAlgorithm.ES256);
+    }
+
+    static KeyPair cognitoKeyPair() {
+        return Keys.keyPairFor(SignatureAlgorithm.RS256);
+    }
+
+    static String userClaimsToken(KeyPair keyPair) {
+        return Jwts.builder()
+                .setHeaderParam("kid", ALB_KEY_ID)
+                .setHeaderParam("signer",
+                        "arn:aws:elasticloadbalancing:eu-central-1:123456789012:loadbalancer/app/benchmark/50dc6c495c0c9188")
+                .setHeaderParam("iss", COGNITO_URL)
+                .setHeaderParam("client", "benchmark-client")
+                .setSubject("9a1b2c3d-4e5f-6789-abcd-ef0123456789")
+                .claim("email", "benchmark.user@example.com")
+                .claim("email_verified", "true")
+                .claim("username", "benchmark.user")
+                .setExpiration(new Date(System.currentTimeMillis() + VALIDITY))
+                .signWith(keyPair.getPrivate())
+                .compact();
+    }
+
+    static String accessToken(KeyPair keyPair) {
+        return Jwts.builder()
+                .setHeaderParam("kid", COGNITO_KEY_ID)
+                .setSubject("9a1b2c3d-4e5f-6789-abcd-ef0123456789")
+                .setIssuer(COGNITO_URL)
+                .claim("token_use", "access")
+                .claim("scope", "openid profile email")
+                .claim("client_id", "benchmark-client")
+                .claim("username", "benchmark.user")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + VALIDITY))
+                .signWith(keyPair.getPrivate())
+                .compact();
+    }
+
+    /**
+     * Encodes the public key the way the ALB key endpoint returns it: armored PEM with 64 character lines.
+     */
+    static String pem(PublicKey publicKey) {
+        return "-----BEGIN PUBLIC KEY-----\n"
+                + Base64.getMimeEncoder(64, new byte[]{'\n'}).encodeToString(publicKey.getEncoded())
+                + "\n-----END PUBLIC KEY-----\n";
+    }
+}
@@ -0,0 +1,50 @@
+package com.rbinternational.awstools.awsjwtvalidator.benchmarks;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.SigningKeyNotFoundException;
+
+import java.math.BigInteger;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link JwkProvider} serving a single RSA key, built from the same JWK values a Cognito <code>jwks.json</code>
+ * contains, without network access.
+ */
+class InMemoryJwkProvider implements JwkProvider {
+
+    private final String keyId;
+
+    private final Map<String, Object> values = new HashMap<>();
+
+    InMemoryJwkProvider(String keyId, RSAPublicKey publicKey) {
+        this.keyId = keyId;
+        this.values.put("kid", keyId);
+        this.values.put("kty", "RSA");
+        this.values.put("alg", "RS256");
+        this.values.put("use", "sig");
+        this.values.put("n", base64Url(publicKey.getModulus()));
+        this.values.put("e", base64Url(publicKey.getPublicExponent()));
+    }
+
+    @Override
+    public Jwk get(String keyId) throws SigningKeyNotFoundException {
+        if (!this.keyId.equals(keyId)) {
+            throw new SigningKeyNotFoundException("No key found for kid " + keyId, null);
+        }
+        return Jwk.fromValues(this.values);
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] unsigned = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, unsigned, 0, unsigned.length);
+            bytes = unsigned;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
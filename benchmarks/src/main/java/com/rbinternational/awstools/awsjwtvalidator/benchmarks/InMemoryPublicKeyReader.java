@@ -0,0 +1,23 @@
+package com.rbinternational.awstools.awsjwtvalidator.benchmarks;
+
+import com.rbinternational.awstools.awsjwtvalidator.PublicKeyReader;
+
+import java.net.URL;
+import java.security.PublicKey;
+
+/**
+ * {@link PublicKeyReader} returning the PEM of a fixed key without network access.
+ */
+class InMemoryPublicKeyReader implements PublicKeyReader {
+
+    private final String pem;
+
+    InMemoryPublicKeyReader(PublicKey publicKey) {
+        this.pem = BenchmarkTokens.pem(publicKey);
+    }
+
+    @Override
+    public String readPublicKey(URL url) {
+        return this.pem;
+    }
+}
@@ -0,0 +1,89 @@
+package com.rbinternational.awstools.awsjwtvalidator.benchmarks;
+
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsJwkProvider;
+import com.rbinternational.awstools.awsjwtvalidator.CachingJwkProvider;
+import com.rbinternational.awstools.awsjwtvalidator.KeyCacheConfig;
+import com.rbinternational.awstools.awsjwtvalidator.KeyRegistry;
+import com.rbinternational.awstools.awsjwtvalidator.KeySetJwkProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.Key;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving the public key of a known key ID with 64 threads: the per-key {@link CachingJwkProvider}, which serves the
+ * JWK as read from the <code>jwks.json</code>, against the {@link KeyRegistry} with its prepared keys, directly, behind
+ * the {@link KeySetJwkProvider} and behind the default ALB provider of
+ * {@link AWSAlbUserClaimsJwkProvider#createProvider(String, com.rbinternational.awstools.awsjwtvalidator.PublicKeyReader)}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class KeyLookupBenchmark {
+
+    private CachingJwkProvider cachingProvider;
+
+    private KeyRegistry registry;
+
+    private KeySetJwkProvider keySetProvider;
+
+    private JwkProvider albProvider;
+
+    @Setup
+    public void setup() throws JwkException {
+        JwkProvider jwkProvider = new InMemoryJwkProvider(BenchmarkTokens.COGNITO_KEY_ID,
+                (RSAPublicKey) BenchmarkTokens.cognitoKeyPair().getPublic());
+        this.cachingProvider = new CachingJwkProvider(jwkProvider,
+                KeyCacheConfig.builder().expireAfterWrite(Duration.ofDays(5)).build());
+        this.cachingProvider.get(BenchmarkTokens.COGNITO_KEY_ID);
+        this.registry = new KeyRegistry();
+        this.registry.put(jwkProvider.get(BenchmarkTokens.COGNITO_KEY_ID));
+        this.keySetProvider = new KeySetJwkProvider(
+                () -> Collections.singletonList(jwkProvider.get(BenchmarkTokens.COGNITO_KEY_ID)),
+                KeySetJwkProvider.DEFAULT_REFRESH_COOLDOWN, KeySetJwkProvider.DEFAULT_GRACE_PERIOD,
+                KeySetJwkProvider.DEFAULT_MAX_AGE);
+        this.keySetProvider.refresh();
+        this.albProvider = AWSAlbUserClaimsJwkProvider.createProvider(BenchmarkTokens.ALB_ENDPOINT,
+                new InMemoryPublicKeyReader(BenchmarkTokens.albKeyPair().getPublic()));
+        this.albProvider.get(BenchmarkTokens.ALB_KEY_ID);
+    }
+
+    @Benchmark
+    public Key cachingJwkProvider() throws JwkException {
+        return this.cachingProvider.get(BenchmarkTokens.COGNITO_KEY_ID).getPublicKey();
+    }
+
+    @Benchmark
+    public Key keyRegistry() {
+        return this.registry.getPublicKey(BenchmarkTokens.COGNITO_KEY_ID);
+    }
+
+    @Benchmark
+    public Key keySetJwkProvider() throws JwkException {
+        return this.keySetProvider.get(BenchmarkTokens.COGNITO_KEY_ID).getPublicKey();
+    }
+
+    @Benchmark
+    public Key albUserClaimsJwkProvider() throws JwkException {
+        return this.albProvider.get(BenchmarkTokens.ALB_KEY_ID).getPublicKey();
+    }
+}
@@ -0,0 +1,77 @@
+package com.rbinternational.awstools.awsjwtvalidator.benchmarks;
+
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsTokenValidator;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolver;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a new {@link io.jsonwebtoken.JwtParser} for every token (the behaviour before the validators
+ * kept a prebuilt parser) against the validator's shared parser. Run with <code>-prof gc</code> to see the
+ * allocation per token.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserReuseBenchmark {
+
+    private String token;
+
+    private SigningKeyResolver signingKeyResolver;
+
+    private AWSAlbUserClaimsTokenValidator validator;
+
+    @Setup
+    public void setup() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        this.token = Jwts.builder()
+                .setHeaderParam("kid", "benchmark")
+                .setSubject("benchmark")
+                .claim("email", "benchmark@example.com")
+                .signWith(keyPair.getPrivate())
+                .compact();
+        Key publicKey = keyPair.getPublic();
+        this.signingKeyResolver = new SigningKeyResolverAdapter() {
+            @Override
+            public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                return publicKey;
+            }
+        };
+        this.validator = new AWSAlbUserClaimsTokenValidator(this.signingKeyResolver);
+    }
+
+    @Benchmark
+    public Jws<Claims> rebuildParserPerToken() {
+        return Jwts.parserBuilder()
+                .setSigningKeyResolver(this.signingKeyResolver)
+                .build()
+                .parseClaimsJws(this.token);
+    }
+
+    @Benchmark
+    public Jws<Claims> prebuiltParser() {
+        return this.validator.validateToken(this.token);
+    }
+}
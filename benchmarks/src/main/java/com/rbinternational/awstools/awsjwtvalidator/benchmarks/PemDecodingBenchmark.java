@@ -0,0 +1,59 @@
+package com.rbinternational.awstools.awsjwtvalidator.benchmarks;
+
+import com.rbinternational.awstools.awsjwtvalidator.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Utils#publicKeyFromPEM(String, String)} for the EC keys of the ALB and for RSA keys, and
+ * {@link Utils#publicKeysFromPEM(CharSequence)} for a bundle of both.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PemDecodingBenchmark {
+
+    private String ecPem;
+
+    private String rsaPem;
+
+    private String bundle;
+
+    @Setup
+    public void setup() {
+        this.ecPem = BenchmarkTokens.pem(BenchmarkTokens.albKeyPair().getPublic());
+        this.rsaPem = BenchmarkTokens.pem(BenchmarkTokens.cognitoKeyPair().getPublic());
+        this.bundle = this.ecPem + "\n" + this.rsaPem;
+    }
+
+    @Benchmark
+    public Key ecPublicKeyFromPEM() {
+        return Utils.publicKeyFromPEM(this.ecPem, "EC");
+    }
+
+    @Benchmark
+    public Key rsaPublicKeyFromPEM() {
+        return Utils.publicKeyFromPEM(this.rsaPem, "RSA");
+    }
+
+    @Benchmark
+    public List<PublicKey> publicKeysFromPEMBundle() {
+        return Utils.publicKeysFromPEM(this.bundle);
+    }
+}
@@ -0,0 +1,96 @@
+package com.rbinternational.awstools.awsjwtvalidator.benchmarks;
+
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsJwkProvider;
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsSigningKeyResolver;
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsTokenValidator;
+import com.rbinternational.awstools.awsjwtvalidator.InvalidTokenException;
+import com.rbinternational.awstools.awsjwtvalidator.ValidationLogging;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link AWSAlbUserClaimsTokenValidator} with a warm key cache when every second token is expired. With
+ * the default rate-limited rejection logging the invalid tokens cost about as much as the valid ones, with
+ * <code>rejectionLogInterval=0</code> every rejection is logged as it was before the logging policy, which shows the
+ * cost of the log output.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RejectionLoadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Tokens {
+
+        @Param({"10000", "0"})
+        long rejectionLogIntervalMillis;
+
+        AWSAlbUserClaimsTokenValidator validator;
+
+        String[] tokens;
+
+        @Setup
+        public void setup() {
+            ValidationLogging.setRejectionLogInterval(Duration.ofMillis(this.rejectionLogIntervalMillis));
+            KeyPair keyPair = BenchmarkTokens.albKeyPair();
+            String valid = BenchmarkTokens.userClaimsToken(keyPair);
+            String expired = Jwts.builder()
+                    .setHeaderParam("kid", BenchmarkTokens.ALB_KEY_ID)
+                    .setSubject("9a1b2c3d-4e5f-6789-abcd-ef0123456789")
+                    .setExpiration(new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(5)))
+                    .signWith(keyPair.getPrivate())
+                    .compact();
+            this.tokens = new String[]{valid, expired};
+            this.validator = new AWSAlbUserClaimsTokenValidator(new AWSAlbUserClaimsSigningKeyResolver(
+                    AWSAlbUserClaimsJwkProvider.createProvider(BenchmarkTokens.ALB_ENDPOINT,
+                            new InMemoryPublicKeyReader(keyPair.getPublic()))));
+            this.validator.validateToken(valid);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object halfInvalidSingleThreaded(Tokens tokens, Cursor cursor) {
+        return validate(tokens, cursor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object halfInvalidContended(Tokens tokens, Cursor cursor) {
+        return validate(tokens, cursor);
+    }
+
+    private static Object validate(Tokens tokens, Cursor cursor) {
+        String token = tokens.tokens[cursor.next++ & 1];
+        try {
+            return tokens.validator.validateToken(token);
+        }
+        catch (InvalidTokenException e) {
+            return e;
+        }
+    }
+}
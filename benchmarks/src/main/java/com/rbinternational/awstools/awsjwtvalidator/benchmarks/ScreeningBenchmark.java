@@ -0,0 +1,86 @@
+package com.rbinternational.awstools.awsjwtvalidator.benchmarks;
+
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsJwkProvider;
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsSigningKeyResolver;
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsTokenValidator;
+import com.rbinternational.awstools.awsjwtvalidator.TokenScreener;
+import com.rbinternational.awstools.awsjwtvalidator.ValidationResult;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AWSAlbUserClaimsTokenValidator} with and without the {@link TokenScreener}, for a valid token (the overhead of
+ * the screening), an expired one and garbage (rejected by the screening without signature verification). The key
+ * cache is warm, so the difference is the cryptography and the jjwt parsing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScreeningBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Tokens {
+
+        @Param({"true", "false"})
+        boolean screening;
+
+        AWSAlbUserClaimsTokenValidator validator;
+
+        String valid;
+
+        String expired;
+
+        String garbage;
+
+        @Setup
+        public void setup() {
+            KeyPair keyPair = BenchmarkTokens.albKeyPair();
+            this.valid = BenchmarkTokens.userClaimsToken(keyPair);
+            this.expired = Jwts.builder()
+                    .setHeaderParam("kid", BenchmarkTokens.ALB_KEY_ID)
+                    .setSubject("9a1b2c3d-4e5f-6789-abcd-ef0123456789")
+                    .setExpiration(new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(5)))
+                    .signWith(keyPair.getPrivate())
+                    .compact();
+            this.garbage = this.valid.substring(0, this.valid.length() / 2) + "!" + this.valid.substring(10);
+            this.validator = new AWSAlbUserClaimsTokenValidator(new AWSAlbUserClaimsSigningKeyResolver(
+                    AWSAlbUserClaimsJwkProvider.createProvider(BenchmarkTokens.ALB_ENDPOINT,
+                            new InMemoryPublicKeyReader(keyPair.getPublic()))));
+            if (!this.screening) {
+                this.validator.setTokenScreener(null);
+            }
+            this.validator.validateToken(this.valid);
+        }
+    }
+
+    @Benchmark
+    public ValidationResult validToken(Tokens tokens) {
+        return tokens.validator.tryValidateToken(tokens.valid);
+    }
+
+    @Benchmark
+    public ValidationResult expiredToken(Tokens tokens) {
+        return tokens.validator.tryValidateToken(tokens.expired);
+    }
+
+    @Benchmark
+    public ValidationResult garbageToken(Tokens tokens) {
+        return tokens.validator.tryValidateToken(tokens.garbage);
+    }
+}
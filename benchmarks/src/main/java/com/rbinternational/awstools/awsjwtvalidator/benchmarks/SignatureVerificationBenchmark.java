@@ -0,0 +1,76 @@
+package com.rbinternational.awstools.awsjwtvalidator.benchmarks;
+
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsTokenValidator;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolver;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the signature verification of the ES256 user claims token and the RS256 access token through the
+ * validator, against a plain jjwt parser as baseline. Both create a new <code>Signature</code> per token; token
+ * screening is disabled, so the difference is the overhead of the validator around jjwt.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureVerificationBenchmark {
+
+    @Param({"ES256", "RS256"})
+    public String algorithm;
+
+    private String token;
+
+    private JwtParser jjwtParser;
+
+    private AWSAlbUserClaimsTokenValidator validator;
+
+    @Setup
+    public void setup() {
+        KeyPair keyPair = "ES256".equals(this.algorithm)
+                ? BenchmarkTokens.albKeyPair() : BenchmarkTokens.cognitoKeyPair();
+        this.token = "ES256".equals(this.algorithm)
+                ? BenchmarkTokens.userClaimsToken(keyPair) : BenchmarkTokens.accessToken(keyPair);
+        Key publicKey = keyPair.getPublic();
+        SigningKeyResolver signingKeyResolver = new SigningKeyResolverAdapter() {
+            @Override
+            public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                return publicKey;
+            }
+        };
+        this.jjwtParser = Jwts.parserBuilder().setSigningKeyResolver(signingKeyResolver).build();
+        this.validator = new AWSAlbUserClaimsTokenValidator(signingKeyResolver);
+        this.validator.setTokenScreener(null);
+    }
+
+    @Benchmark
+    public Jws<Claims> jjwtParser() {
+        return this.jjwtParser.parseClaimsJws(this.token);
+    }
+
+    @Benchmark
+    public Jws<Claims> validator() {
+        return this.validator.validateToken(this.token);
+    }
+}
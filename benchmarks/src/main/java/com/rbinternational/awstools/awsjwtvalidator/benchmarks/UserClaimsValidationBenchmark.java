@@ -0,0 +1,106 @@
+package com.rbinternational.awstools.awsjwtvalidator.benchmarks;
+
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsJwkProvider;
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsSigningKeyResolver;
+import com.rbinternational.awstools.awsjwtvalidator.AWSAlbUserClaimsTokenValidator;
+import com.rbinternational.awstools.awsjwtvalidator.PublicKeyReader;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ES256 ALB user claims tokens through {@link AWSAlbUserClaimsTokenValidator}, with the public key served by an
+ * in-memory {@link PublicKeyReader}. The warm cases share one validator whose key cache is already populated, the
+ * cold cases get a new validator (and an empty key cache) for every token, so they include the key read and the
+ * PEM conversion.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserClaimsValidationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Keys {
+
+        KeyPair keyPair;
+
+        String token;
+
+        PublicKeyReader publicKeyReader;
+
+        @Setup
+        public void setup() {
+            this.keyPair = BenchmarkTokens.albKeyPair();
+            this.token = BenchmarkTokens.userClaimsToken(this.keyPair);
+            this.publicKeyReader = new InMemoryPublicKeyReader(this.keyPair.getPublic());
+        }
+
+        AWSAlbUserClaimsTokenValidator newValidator() {
+            return new AWSAlbUserClaimsTokenValidator(new AWSAlbUserClaimsSigningKeyResolver(
+                    AWSAlbUserClaimsJwkProvider.createProvider(BenchmarkTokens.ALB_ENDPOINT, this.publicKeyReader)));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WarmCache {
+
+        AWSAlbUserClaimsTokenValidator validator;
+
+        @Setup
+        public void setup(Keys keys) {
+            this.validator = keys.newValidator();
+            this.validator.validateToken(keys.token);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ColdCache {
+
+        AWSAlbUserClaimsTokenValidator validator;
+
+        @Setup(Level.Invocation)
+        public void setup(Keys keys) {
+            this.validator = keys.newValidator();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Jws<Claims> warmCacheSingleThreaded(Keys keys, WarmCache cache) {
+        return cache.validator.validateToken(keys.token);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Jws<Claims> warmCacheContended(Keys keys, WarmCache cache) {
+        return cache.validator.validateToken(keys.token);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Jws<Claims> coldCacheSingleThreaded(Keys keys, ColdCache cache) {
+        return cache.validator.validateToken(keys.token);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Jws<Claims> coldCacheContended(Keys keys, ColdCache cache) {
+        return cache.validator.validateToken(keys.token);
+    }
+}
@@ -0,0 +1,144 @@
+package com.rbinternational.awstools.awsjwtvalidator.micrometer;
+
+import com.rbinternational.awstools.awsjwtvalidator.RejectionReason;
+import com.rbinternational.awstools.awsjwtvalidator.ValidationMetrics;
+import com.rbinternational.awstools.awsjwtvalidator.ValidationMetricsListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds the validation metrics to a Micrometer {@link MeterRegistry}. All meters are registered up front, except the
+ * HTTP timers which are tagged with the status code as it occurs.
+ * <p>
+ * The meters are:
+ * <ul>
+ *     <li><code>aws.jwt.validation</code> timer, tagged with <code>outcome</code> and <code>reason</code></li>
+ *     <li><code>aws.jwt.key.cache</code> counter, tagged with <code>result</code> hit or miss</li>
+ *     <li><code>aws.jwt.key.resolution</code> timer, tagged with <code>outcome</code></li>
+ *     <li><code>aws.jwt.key.fetch</code> timer, tagged with <code>outcome</code></li>
+ *     <li><code>aws.jwt.key.http</code> timer, tagged with <code>status</code></li>
+ * </ul>
+ */
+public class MicrometerValidationMetricsListener implements ValidationMetricsListener {
+
+    private static final String OUTCOME = "outcome";
+
+    private final MeterRegistry registry;
+
+    private final Timer validated;
+
+    private final Map<RejectionReason, Timer> rejected = new EnumMap<>(RejectionReason.class);
+
+    private final Counter keyCacheHits;
+
+    private final Counter keyCacheMisses;
+
+    private final Timer keyResolved;
+
+    private final Timer keyResolutionFailed;
+
+    private final Timer keyFetched;
+
+    private final Timer keyFetchFailed;
+
+    private final ConcurrentMap<Integer, Timer> httpRequests = new ConcurrentHashMap<>();
+
+    public MicrometerValidationMetricsListener(MeterRegistry registry) {
+        if (registry == null) {
+            throw new IllegalArgumentException("registry must be provided!");
+        }
+        this.registry = registry;
+        this.validated = Timer.builder("aws.jwt.validation")
+                .description("Token validations")
+                .tags(OUTCOME, "valid", "reason", "none")
+                .register(registry);
+        for (RejectionReason reason : RejectionReason.values()) {
+            this.rejected.put(reason, Timer.builder("aws.jwt.validation")
+                    .description("Token validations")
+                    .tags(OUTCOME, "rejected", "reason", reason.name().toLowerCase())
+                    .register(registry));
+        }
+        this.keyCacheHits = Counter.builder("aws.jwt.key.cache").tag("result", "hit").register(registry);
+        this.keyCacheMisses = Counter.builder("aws.jwt.key.cache").tag("result", "miss").register(registry);
+        this.keyResolved = Timer.builder("aws.jwt.key.resolution").tag(OUTCOME, "success").register(registry);
+        this.keyResolutionFailed = Timer.builder("aws.jwt.key.resolution").tag(OUTCOME, "failure").register(registry);
+        this.keyFetched = Timer.builder("aws.jwt.key.fetch").tag(OUTCOME, "success").register(registry);
+        this.keyFetchFailed = Timer.builder("aws.jwt.key.fetch").tag(OUTCOME, "failure").register(registry);
+    }
+
+    /**
+     * Creates the listener and registers it with {@link ValidationMetrics}.
+     *
+     * @param registry the registry to bind the meters to
+     *
+     * @return the registered listener
+     */
+    public static MicrometerValidationMetricsListener bindTo(MeterRegistry registry) {
+        MicrometerValidationMetricsListener listener = new MicrometerValidationMetricsListener(registry);
+        ValidationMetrics.register(listener);
+        return listener;
+    }
+
+    @Override
+    public void tokenValidated(long durationNanos) {
+        this.validated.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void tokenRejected(RejectionReason reason, long durationNanos) {
+        this.rejected.get(reason).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void keyCacheHit() {
+        this.keyCacheHits.increment();
+    }
+
+    @Override
+    public void keyCacheMiss() {
+        this.keyCacheMisses.increment();
+    }
+
+    @Override
+    public void keyResolved(long durationNanos) {
+        this.keyResolved.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void keyResolutionFailed(long durationNanos) {
+        this.keyResolutionFailed.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void keyFetched(long durationNanos) {
+        this.keyFetched.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void keyFetchFailed(long durationNanos) {
+        this.keyFetchFailed.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void httpRequestCompleted(int statusCode, long durationNanos) {
+        httpTimer(statusCode).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void httpRequestFailed(long durationNanos) {
+        httpTimer(-1).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer httpTimer(int statusCode) {
+        return this.httpRequests.computeIfAbsent(statusCode, code -> Timer.builder("aws.jwt.key.http")
+                .tag("status", code < 0 ? "io_error" : String.valueOf(code))
+                .register(this.registry));
+    }
+}
@@ -0,0 +1,38 @@
+package com.rbinternational.awstools.awsjwtvalidator.micrometer;
+
+import com.rbinternational.awstools.awsjwtvalidator.RejectionReason;
+import com.rbinternational.awstools.awsjwtvalidator.ValidationMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MicrometerValidationMetricsListenerTest {
+
+    @AfterEach
+    public void tearDown() {
+        ValidationMetrics.unregister();
+    }
+
+    @Test
+    public void testMetersAreRecorded() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerValidationMetricsListener listener = MicrometerValidationMetricsListener.bindTo(registry);
+        assertSame(listener, ValidationMetrics.listener());
+
+        listener.tokenValidated(1000);
+        listener.tokenRejected(RejectionReason.EXPIRED, 1000);
+        listener.keyCacheHit();
+        listener.keyCacheMiss();
+        listener.httpRequestCompleted(200, 1000);
+        listener.httpRequestFailed(1000);
+
+        assertEquals(1, registry.get("aws.jwt.validation").tags("outcome", "valid").timer().count());
+        assertEquals(1, registry.get("aws.jwt.validation").tags("reason", "expired").timer().count());
+        assertEquals(1.0, registry.get("aws.jwt.key.cache").tags("result", "hit").counter().count());
+        assertEquals(1.0, registry.get("aws.jwt.key.cache").tags("result", "miss").counter().count());
+        assertEquals(1, registry.get("aws.jwt.key.http").tags("status", "200").timer().count());
+        assertEquals(1, registry.get("aws.jwt.key.http").tags("status", "io_error").timer().count());
+    }
+}
@@ -1,29 +1,30 @@
 package com.rbinternational.awstools.awsjwtvalidator;
 
-import com.auth0.jwk.GuavaCachedJwkProvider;
 import com.auth0.jwk.JwkProvider;
 import com.auth0.jwk.UrlJwkProvider;
-import io.jsonwebtoken.*;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.SigningKeyResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.security.Key;
-import java.util.concurrent.TimeUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Validates the received access token. This is a standard JWT implementation with JWK keys. It requires the
  * Cognito IDP url and uses the .well-known urls to query the public keys. Requires that the token's issuer (iss) is
  * the same as the Cognito url and that the "token_use" is "access".
- * The signing public keys are cached internally for 5 days - according to AWS they can be read only once.
+ * The signing public keys are kept as a whole key set, downloaded again on an unknown key ID at most once a minute and
+ * in the background every 5 days - see {@link KeySetJwkProvider}. A key cache sized per key can be configured with
+ * {@link #createProvider(String, KeyCacheConfig)}.
  */
-public class AWSAlbAccessTokenValidator implements JwtTokenValidator {
+public class AWSAlbAccessTokenValidator extends AbstractJwtTokenValidator {
 
-    private final Logger logger = LoggerFactory.getLogger(AWSAlbAccessTokenValidator.class);
+    private static final Logger LOGGER = LoggerFactory.getLogger(AWSAlbAccessTokenValidator.class);
 
     private final String url;
 
-    private SigningKeyResolver signingKeyResolver;
-
     /**
      * Constructor with the Cognito user pool URL - it will be used to construct the JWK well-known URL. This URL must also
      * match the issuer (<code>iss</code>) of the access token.
@@ -31,12 +32,32 @@ public class AWSAlbAccessTokenValidator implements JwtTokenValidator {
      * @param url the Cognito user pool URL, i.e. <code>https://cognito-idp.&lt;region&gt;.amazonaws.com/&lt;userpool-id&gt;</code>
      */
     public AWSAlbAccessTokenValidator(String url) {
-        if (url == null) {
-            throw new IllegalArgumentException("url for cognito user pool must be provided!");
-        }
-        logger.debug("AWSAlbAccessTokenValidator given url {} ", url);
+        this(url, (JwkProvider) null);
+    }
+
+    /**
+     * Constructor with the Cognito user pool URL and a snapshot of the signing keys, which are served until the key set
+     * of the user pool is downloaded.
+     *
+     * @param url the Cognito user pool URL, i.e. <code>https://cognito-idp.&lt;region&gt;.amazonaws.com/&lt;userpool-id&gt;</code>
+     * @param snapshotStore the snapshot of the keys, see {@link #createProvider(String, KeySnapshotStore)}
+     */
+    public AWSAlbAccessTokenValidator(String url, KeySnapshotStore snapshotStore) {
+        this(url, createProvider(url, snapshotStore));
+    }
+
+    /**
+     * Constructor with the Cognito user pool URL and a custom {@link JwkProvider} for the signing keys. The provider is
+     * used as given, i.e. it is not wrapped in a cache.
+     *
+     * @param url the Cognito user pool URL, i.e. <code>https://cognito-idp.&lt;region&gt;.amazonaws.com/&lt;userpool-id&gt;</code>
+     * @param jwkProvider the provider of the signing keys, if <code>null</code> a {@link KeySetJwkProvider} of the
+     *                    well-known JWK URL of the user pool is used
+     */
+    public AWSAlbAccessTokenValidator(String url, JwkProvider jwkProvider) {
+        super(new RSASigningKeyResolver(jwkProvider != null ? jwkProvider : createProvider(url)), requiredClaims(url),
+                TokenScreener.forAccessTokens(url));
         this.url = url;
-        this.signingKeyResolver = new RSASigningKeyResolver(createProvider());
     }
 
     /**
@@ -48,58 +69,69 @@ public class AWSAlbAccessTokenValidator implements JwtTokenValidator {
      */
     @Override
     public Jws<Claims> validateToken(String token) throws InvalidTokenException {
-        logger.debug("Processing token {}", token);
-        try {
-            Jws<Claims> claimsJws = Jwts.parserBuilder()
-                    .requireIssuer(this.url)
-                    .require("token_use", "access")
-                    .setSigningKeyResolver(getSigningKeyResolver())
-                    .build()
-                    .parseClaimsJws(token);
-            logger.debug("Got claims: {}", claimsJws);
-            return claimsJws;
-        }
-        catch (Exception e) {
-            logger.error(e.getMessage(), e);
-            throw new InvalidTokenException(e);
-        }
+        return super.validateToken(token);
     }
 
-    public SigningKeyResolver getSigningKeyResolver() {
-        return this.signingKeyResolver;
+    @Override
+    public void setSigningKeyResolver(SigningKeyResolver signingKeyResolver) {
+        super.setSigningKeyResolver(signingKeyResolver);
     }
 
-    public void setSigningKeyResolver(SigningKeyResolver signingKeyResolver) {
-        this.signingKeyResolver = signingKeyResolver;
+    public String getUrl() {
+        return this.url;
     }
 
-    private JwkProvider createProvider() {
-        return new GuavaCachedJwkProvider(new UrlJwkProvider(url), 5, 5, TimeUnit.DAYS);
+    private static Map<String, Object> requiredClaims(String url) {
+        if (url == null) {
+            throw new IllegalArgumentException("url for cognito user pool must be provided!");
+        }
+        LOGGER.debug("AWSAlbAccessTokenValidator given url {} ", url);
+        Map<String, Object> requiredClaims = new LinkedHashMap<>();
+        requiredClaims.put(Claims.ISSUER, url);
+        requiredClaims.put("token_use", "access");
+        return requiredClaims;
     }
 
-    private static class RSASigningKeyResolver extends SigningKeyResolverAdapter {
+    /**
+     * Creates the provider for the signing keys of the user pool, to be passed to
+     * {@link #AWSAlbAccessTokenValidator(String, JwkProvider)}.
+     *
+     * @param url the Cognito user pool URL
+     * @param cacheConfig the sizing and expiry of the key cache
+     *
+     * @return the caching provider of the well-known JWK URL of the user pool
+     */
+    public static CachingJwkProvider createProvider(String url, KeyCacheConfig cacheConfig) {
+        if (url == null) {
+            throw new IllegalArgumentException("url for cognito user pool must be provided!");
+        }
+        return new CachingJwkProvider(new GuardedJwkProvider(new UrlJwkProvider(url)), cacheConfig);
+    }
 
-        private final Logger logger = LoggerFactory.getLogger(RSASigningKeyResolver.class);
+    /**
+     * Creates the default provider for the signing keys of the user pool, starting with the keys of the snapshot and
+     * writing every downloaded key set back to it.
+     *
+     * @param url the Cognito user pool URL
+     * @param snapshotStore the snapshot of the keys, <code>null</code> for none
+     *
+     * @return the key set provider of the well-known JWK URL of the user pool
+     */
+    public static KeySetJwkProvider createProvider(String url, KeySnapshotStore snapshotStore) {
+        if (url == null) {
+            throw new IllegalArgumentException("url for cognito user pool must be provided!");
+        }
+        return new KeySetJwkProvider(url, snapshotStore);
+    }
 
-        private JwkProvider provider;
+    private static JwkProvider createProvider(String url) {
+        return createProvider(url, (KeySnapshotStore) null);
+    }
 
-        public RSASigningKeyResolver(JwkProvider provider) {
-            this.provider = provider;
-        }
+    private static class RSASigningKeyResolver extends JwkSigningKeyResolver {
 
-        @Override
-        public Key resolveSigningKey(JwsHeader header, Claims claims) throws InvalidTokenException {
-            logger.debug("resolveSigningKey for header: {}, claims: {}", header, claims);
-            try {
-                Key publicKey = provider.get(header.getKeyId()).getPublicKey();
-                logger.debug("resolveSigningKey, got public key: {}", publicKey);
-                return publicKey;
-            }
-            catch (Exception e) {
-                logger.error("Exception in RSASigningKeyResolver " + e.getMessage(), e);
-                throw new InvalidTokenException(e);
-            }
+        RSASigningKeyResolver(JwkProvider provider) {
+            super(provider);
         }
-
     }
 }
@@ -0,0 +1,203 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.JwkProvider;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Validates access tokens of many Cognito user pools. A token is routed by its (not yet verified) <code>iss</code>
+ * claim to the {@link AWSAlbAccessTokenValidator} of its user pool, which is created on first use. Only the user pools
+ * of the allow-list are accepted - tokens of any other issuer are rejected without a key fetch.
+ * <p>
+ * The validators are kept in a bounded cache and dropped when their user pool had no traffic for the idle timeout, so
+ * the memory is limited to the maximum number of pools times the size of their key caches. The key fetches of all
+ * pools run on the shared fetch threads of the {@link CachingJwkProvider}.
+ * <p>
+ * Tokens of other issuers are reported and logged like any other rejection, according to the {@link RejectionMode} of
+ * the registry, which also applies to the validators of all user pools.
+ */
+public class AWSAlbAccessTokenValidatorRegistry implements JwtTokenValidator, AsyncJwtTokenValidator {
+
+    public static final long DEFAULT_MAXIMUM_POOLS = 1_000;
+
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofHours(1);
+
+    private final Logger logger = LoggerFactory.getLogger(AWSAlbAccessTokenValidatorRegistry.class);
+
+    private final RejectionLogger rejectionLogger = new RejectionLogger(logger);
+
+    private final Set<String> allowedIssuers;
+
+    private final LoadingCache<String, AWSAlbAccessTokenValidator> validators;
+
+    private volatile RejectionMode rejectionMode = RejectionMode.DETAILED;
+
+    /**
+     * Keeps up to {@link #DEFAULT_MAXIMUM_POOLS} user pools for {@link #DEFAULT_IDLE_TIMEOUT}, each caching 5 keys for
+     * 5 days.
+     *
+     * @param allowedIssuers the Cognito user pool URLs, i.e. <code>https://cognito-idp.&lt;region&gt;.amazonaws.com/&lt;userpool-id&gt;</code>
+     */
+    public AWSAlbAccessTokenValidatorRegistry(Collection<String> allowedIssuers) {
+        this(allowedIssuers, DEFAULT_MAXIMUM_POOLS, DEFAULT_IDLE_TIMEOUT,
+                KeyCacheConfig.builder().expireAfterWrite(Duration.ofDays(5)).build());
+    }
+
+    /**
+     * @param allowedIssuers the Cognito user pool URLs, i.e. <code>https://cognito-idp.&lt;region&gt;.amazonaws.com/&lt;userpool-id&gt;</code>
+     * @param maximumPools the maximum number of user pools with a validator at the same time
+     * @param idleTimeout the time after which the validator of a user pool without traffic is dropped
+     * @param cacheConfig the key cache of each user pool
+     */
+    public AWSAlbAccessTokenValidatorRegistry(Collection<String> allowedIssuers, long maximumPools,
+                                              Duration idleTimeout, KeyCacheConfig cacheConfig) {
+        this(allowedIssuers, maximumPools, idleTimeout, providerFactory(cacheConfig), Ticker.systemTicker());
+    }
+
+    AWSAlbAccessTokenValidatorRegistry(Collection<String> allowedIssuers, long maximumPools, Duration idleTimeout,
+                                       Function<String, JwkProvider> providerFactory, Ticker ticker) {
+        if (allowedIssuers == null || allowedIssuers.isEmpty()) {
+            throw new IllegalArgumentException("allowedIssuers must be provided!");
+        }
+        if (maximumPools <= 0) {
+            throw new IllegalArgumentException("maximumPools must be positive!");
+        }
+        if (idleTimeout == null || idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("idleTimeout must be provided and not negative!");
+        }
+        logger.debug("allowedIssuers: {}, maximumPools: {}, idleTimeout: {}",
+                allowedIssuers.size(), maximumPools, idleTimeout);
+        this.allowedIssuers = Collections.unmodifiableSet(new HashSet<>(allowedIssuers));
+        this.validators = Caffeine.newBuilder()
+                .maximumSize(maximumPools)
+                .expireAfterAccess(idleTimeout)
+                .ticker(ticker)
+                .executor(ForkJoinPool.commonPool())
+                .build(issuer -> {
+                    logger.debug("creating validator for user pool: {}", issuer);
+                    AWSAlbAccessTokenValidator validator
+                            = new AWSAlbAccessTokenValidator(issuer, providerFactory.apply(issuer));
+                    validator.setRejectionMode(this.rejectionMode);
+                    return validator;
+                });
+    }
+
+    @Override
+    public Jws<Claims> validateToken(String token) throws InvalidTokenException {
+        return getValidator(token).validateToken(token);
+    }
+
+    @Override
+    public ValidationResult tryValidateToken(String token) {
+        AWSAlbAccessTokenValidator validator;
+        try {
+            validator = getValidator(token);
+        }
+        catch (InvalidTokenException e) {
+            return ValidationResult.invalid(e);
+        }
+        return validator.tryValidateToken(token);
+    }
+
+    @Override
+    public CompletionStage<Jws<Claims>> validateTokenAsync(String token) {
+        AWSAlbAccessTokenValidator validator;
+        try {
+            validator = getValidator(token);
+        }
+        catch (InvalidTokenException e) {
+            CompletableFuture<Jws<Claims>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return validator.validateTokenAsync(token);
+    }
+
+    /**
+     * @param issuer the Cognito user pool URL
+     *
+     * @return the validator of the user pool, or <code>null</code> if the pool is not allowed
+     */
+    public AWSAlbAccessTokenValidator getValidatorForIssuer(String issuer) {
+        if (issuer == null || !this.allowedIssuers.contains(issuer)) {
+            return null;
+        }
+        return this.validators.get(issuer);
+    }
+
+    public RejectionMode getRejectionMode() {
+        return this.rejectionMode;
+    }
+
+    /**
+     * @param rejectionMode how rejected tokens are reported by the registry and the validators of all user pools,
+     *                      {@link RejectionMode#DETAILED} by default
+     */
+    public void setRejectionMode(RejectionMode rejectionMode) {
+        if (rejectionMode == null) {
+            throw new IllegalArgumentException("rejectionMode must be provided!");
+        }
+        this.rejectionMode = rejectionMode;
+        this.validators.asMap().values().forEach(validator -> validator.setRejectionMode(rejectionMode));
+    }
+
+    public Set<String> getAllowedIssuers() {
+        return this.allowedIssuers;
+    }
+
+    /**
+     * @return the approximate number of user pools with a validator
+     */
+    public long getActivePools() {
+        return this.validators.estimatedSize();
+    }
+
+    private AWSAlbAccessTokenValidator getValidator(String token) throws InvalidTokenException {
+        ValidationMetricsListener metrics = ValidationMetrics.listener();
+        long start = ValidationMetrics.start(metrics);
+        String issuer = TokenHeaders.issuer(token);
+        AWSAlbAccessTokenValidator validator = getValidatorForIssuer(issuer);
+        if (validator == null) {
+            throw rejectIssuer(issuer, metrics, start);
+        }
+        return validator;
+    }
+
+    /**
+     * Reports and logs the rejection of a token of an issuer outside the allow-list like the validators do - in
+     * {@link RejectionMode#LIGHTWEIGHT} with the preallocated exception, without creating one.
+     */
+    private InvalidTokenException rejectIssuer(String issuer, ValidationMetricsListener metrics, long start) {
+        InvalidTokenException rejection = this.rejectionMode == RejectionMode.LIGHTWEIGHT
+                ? InvalidTokenException.of(RejectionReason.ISSUER_MISMATCH)
+                : new InvalidTokenException(RejectionReason.ISSUER_MISMATCH,
+                "issuer " + ValidationLogging.redact(issuer) + " is not allowed!");
+        if (metrics != null) {
+            metrics.tokenRejected(RejectionReason.ISSUER_MISMATCH, System.nanoTime() - start);
+        }
+        this.rejectionLogger.log(rejection);
+        return rejection;
+    }
+
+    private static Function<String, JwkProvider> providerFactory(KeyCacheConfig cacheConfig) {
+        if (cacheConfig == null) {
+            throw new IllegalArgumentException("cacheConfig must be provided!");
+        }
+        return issuer -> AWSAlbAccessTokenValidator.createProvider(issuer, cacheConfig);
+    }
+}
@@ -0,0 +1,257 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Provides the ALB public keys of several regions. Every configured region has its own provider in front of its
+ * regional key endpoint - by default the same {@link RefreshAheadJwkProvider} over a {@link GuardedJwkProvider} as
+ * {@link AWSAlbUserClaimsJwkProvider#createProvider(String, PublicKeyReader)} creates.
+ * The providers of all regions are created up front, so failover traffic from another region never builds a cache.
+ * <p>
+ * The region is taken from the <code>signer</code> ARN of the token header (see {@link #regionOf(String)}). As the
+ * header is not verified at that point, only the configured regions are served - any other region is rejected
+ * without a network call.
+ * <p>
+ * As {@link JwkProvider} the key IDs are qualified with the region, see {@link #regionalKeyId(String, String)}, so
+ * the {@link AWSAlbMultiRegionSigningKeyResolver} is served through the same synchronous, asynchronous and batch
+ * paths as any other {@link JwkSigningKeyResolver}. A key ID without region is looked up in the only region, if
+ * just one is configured, and rejected otherwise.
+ */
+public class AWSAlbMultiRegionJwkProvider implements AsyncJwkProvider {
+
+    /**
+     * Separates the region from the key ID, it is not part of any region name.
+     */
+    static final char REGION_SEPARATOR = '/';
+
+    private final Logger logger = LoggerFactory.getLogger(AWSAlbMultiRegionJwkProvider.class);
+
+    private final Map<String, JwkProvider> providers;
+
+    /**
+     * @param regions the regions of the load balancers, e.g. <code>eu-central-1</code>
+     * @param providerFactory creates the provider of a region
+     */
+    public AWSAlbMultiRegionJwkProvider(Collection<String> regions, Function<String, JwkProvider> providerFactory) {
+        if (regions == null || regions.isEmpty()) {
+            throw new IllegalArgumentException("regions must be provided!");
+        }
+        if (providerFactory == null) {
+            throw new IllegalArgumentException("providerFactory must be provided!");
+        }
+        logger.debug("regions: {}", regions);
+        Map<String, JwkProvider> providers = new LinkedHashMap<>();
+        for (String region : regions) {
+            if (region == null || region.trim().isEmpty()) {
+                throw new IllegalArgumentException("region must not be empty!");
+            }
+            JwkProvider provider = providerFactory.apply(region);
+            if (provider == null) {
+                throw new IllegalArgumentException("providerFactory must create a provider for " + region + "!");
+            }
+            providers.put(region, provider);
+        }
+        this.providers = Collections.unmodifiableMap(providers);
+    }
+
+    /**
+     * @param region the region of the load balancer
+     * @param keyId the key ID of the token header
+     *
+     * @return the key of the region
+     *
+     * @throws JwkException if the region is not configured or the key can't be provided
+     */
+    public Jwk get(String region, String keyId) throws JwkException {
+        return getProvider(region).get(keyId);
+    }
+
+    /**
+     * @param regionalKeyId the key ID qualified with the region, see {@link #regionalKeyId(String, String)}
+     *
+     * @throws JwkException if the region is not configured or the key can't be provided
+     */
+    @Override
+    public Jwk get(String regionalKeyId) throws JwkException {
+        return getProvider(regionPart(regionalKeyId)).get(keyIdPart(regionalKeyId));
+    }
+
+    /**
+     * @param regionalKeyId the key ID qualified with the region, see {@link #regionalKeyId(String, String)}
+     *
+     * @return the key, if the provider of the region is an {@link AsyncJwkProvider} and holds it in memory
+     */
+    @Override
+    public Jwk getIfPresent(String regionalKeyId) {
+        JwkProvider provider = this.providers.get(resolveRegion(regionPart(regionalKeyId)));
+        if (provider instanceof AsyncJwkProvider) {
+            return ((AsyncJwkProvider) provider).getIfPresent(keyIdPart(regionalKeyId));
+        }
+        return null;
+    }
+
+    /**
+     * A region whose provider is no {@link AsyncJwkProvider} is fetched on the shared fetch pool.
+     *
+     * @param regionalKeyId the key ID qualified with the region, see {@link #regionalKeyId(String, String)}
+     */
+    @Override
+    public CompletableFuture<Jwk> getAsync(String regionalKeyId) {
+        JwkProvider provider;
+        try {
+            provider = getProvider(regionPart(regionalKeyId));
+        }
+        catch (InvalidTokenException e) {
+            CompletableFuture<Jwk> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        String keyId = keyIdPart(regionalKeyId);
+        if (provider instanceof AsyncJwkProvider) {
+            return ((AsyncJwkProvider) provider).getAsync(keyId);
+        }
+        CompletableFuture<Jwk> future = new CompletableFuture<>();
+        CachingJwkProvider.defaultFetchExecutor().execute(() -> {
+            try {
+                future.complete(provider.get(keyId));
+            }
+            catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @param region the region of the load balancer
+     *
+     * @return the provider of the region
+     *
+     * @throws InvalidTokenException if the region is not configured
+     */
+    public JwkProvider getProvider(String region) throws InvalidTokenException {
+        region = resolveRegion(region);
+        JwkProvider provider = region != null ? this.providers.get(region) : null;
+        if (provider == null) {
+            throw new InvalidTokenException(RejectionReason.UNKNOWN_KID, "region " + region + " is not configured!");
+        }
+        return provider;
+    }
+
+    /**
+     * @return the configured regions, in the order given
+     */
+    public Collection<String> getRegions() {
+        return this.providers.keySet();
+    }
+
+    /**
+     * Fetches the given keys of a region into its cache, e.g. the key IDs seen before a restart. The ALB key endpoints
+     * can't list their keys, so only known key IDs can be warmed. Keys which can't be fetched are logged and skipped.
+     *
+     * @param region the region of the load balancer
+     * @param keyIds the key IDs to fetch
+     *
+     * @return the number of fetched keys
+     */
+    public int warmUp(String region, Collection<String> keyIds) {
+        JwkProvider provider = getProvider(region);
+        int fetched = 0;
+        for (String keyId : keyIds) {
+            try {
+                provider.get(keyId);
+                fetched++;
+            }
+            catch (Exception e) {
+                logger.warn("Warm-up of keyId: {} in region: {} failed: {}", keyId, region, e.getMessage());
+            }
+        }
+        logger.debug("warmed up {} of {} keys in region: {}", fetched, keyIds.size(), region);
+        return fetched;
+    }
+
+    /**
+     * Reads the keys with a {@link HttpPublicKeyReader}.
+     *
+     * @param regions the regions of the load balancers, e.g. <code>eu-central-1</code>
+     */
+    public static AWSAlbMultiRegionJwkProvider createProvider(Collection<String> regions) {
+        return createProvider(regions, null);
+    }
+
+    /**
+     * @param regions the regions of the load balancers, e.g. <code>eu-central-1</code>
+     * @param reader the reader for the public keys, if <code>null</code> {@link HttpPublicKeyReader} is used
+     */
+    public static AWSAlbMultiRegionJwkProvider createProvider(Collection<String> regions, PublicKeyReader reader) {
+        return new AWSAlbMultiRegionJwkProvider(regions, region -> AWSAlbUserClaimsJwkProvider.createProvider(
+                AWSAlbUserClaimsJwkProvider.regionalKeyEndpoint(region), reader));
+    }
+
+    /**
+     * @param signer the <code>signer</code> header of the token
+     * @param keyId the <code>kid</code> header of the token
+     *
+     * @return the key ID qualified with the region of the signer, e.g. <code>eu-west-1/kid</code>, or with an empty
+     *         region if the signer is no ARN; <code>null</code> if the key ID is missing
+     */
+    public static String regionalKeyId(String signer, String keyId) {
+        if (keyId == null) {
+            return null;
+        }
+        String region = regionOf(signer);
+        return (region != null ? region : "") + REGION_SEPARATOR + keyId;
+    }
+
+    /**
+     * Extracts the region from the ARN of the load balancer, which the ALB puts into the <code>signer</code> header,
+     * e.g. <code>arn:aws:elasticloadbalancing:eu-central-1:123456789012:loadbalancer/app/name/id</code>.
+     *
+     * @param signer the signer ARN
+     *
+     * @return the region, or <code>null</code> if the value is not an ARN
+     */
+    public static String regionOf(String signer) {
+        if (signer == null || !signer.startsWith("arn:")) {
+            return null;
+        }
+        int serviceStart = signer.indexOf(':', 4);
+        int regionStart = serviceStart < 0 ? -1 : signer.indexOf(':', serviceStart + 1);
+        int regionEnd = regionStart < 0 ? -1 : signer.indexOf(':', regionStart + 1);
+        if (regionEnd <= regionStart + 1) {
+            return null;
+        }
+        return signer.substring(regionStart + 1, regionEnd);
+    }
+
+    /**
+     * @return the given region, or the only configured region if none is given
+     */
+    private String resolveRegion(String region) {
+        if (region == null && this.providers.size() == 1) {
+            return this.providers.keySet().iterator().next();
+        }
+        return region;
+    }
+
+    private static String regionPart(String regionalKeyId) {
+        int separator = regionalKeyId != null ? regionalKeyId.indexOf(REGION_SEPARATOR) : -1;
+        return separator > 0 ? regionalKeyId.substring(0, separator) : null;
+    }
+
+    private static String keyIdPart(String regionalKeyId) {
+        int separator = regionalKeyId != null ? regionalKeyId.indexOf(REGION_SEPARATOR) : -1;
+        return separator >= 0 ? regionalKeyId.substring(separator + 1) : regionalKeyId;
+    }
+}
@@ -0,0 +1,33 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import io.jsonwebtoken.JwsHeader;
+
+/**
+ * The signature validator for ALB user claims tokens of several regions. The key is resolved from the provider of the
+ * region named in the <code>signer</code> header, falling back to the only region if just one is configured.
+ */
+public class AWSAlbMultiRegionSigningKeyResolver extends JwkSigningKeyResolver {
+
+    public static final String SIGNER_HEADER = "signer";
+
+    public AWSAlbMultiRegionSigningKeyResolver(AWSAlbMultiRegionJwkProvider jwkProvider) {
+        super(jwkProvider);
+    }
+
+    @Override
+    protected String lookupKeyId(JwsHeader header) {
+        Object signer = header.get(SIGNER_HEADER);
+        return AWSAlbMultiRegionJwkProvider.regionalKeyId(signer instanceof String ? (String) signer : null,
+                header.getKeyId());
+    }
+
+    @Override
+    protected String lookupKeyId(String token, String keyId) {
+        return AWSAlbMultiRegionJwkProvider.regionalKeyId(TokenHeaders.signer(token), keyId);
+    }
+
+    @Override
+    public AWSAlbMultiRegionJwkProvider getJwkProvider() {
+        return (AWSAlbMultiRegionJwkProvider) super.getJwkProvider();
+    }
+}
@@ -0,0 +1,57 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+
+import java.security.Principal;
+
+/**
+ * The user of a request, authenticated by both ALB tokens: the Cognito access token
+ * (<code>x-amzn-oidc-accesstoken</code>) and the ALB user claims token (<code>x-amzn-oidc-data</code>), whose subjects
+ * match. The name of the principal is the subject.
+ */
+public final class AWSAlbPrincipal implements Principal {
+
+    private final Jws<Claims> accessToken;
+
+    private final Jws<Claims> userClaims;
+
+    AWSAlbPrincipal(Jws<Claims> accessToken, Jws<Claims> userClaims) {
+        this.accessToken = accessToken;
+        this.userClaims = userClaims;
+    }
+
+    /**
+     * @return the subject of both tokens
+     */
+    @Override
+    public String getName() {
+        return this.userClaims.getBody().getSubject();
+    }
+
+    /**
+     * Looks up a claim in the user claims token first (e.g. <code>email</code>), then in the access token (e.g.
+     * <code>scope</code>, <code>client_id</code>).
+     *
+     * @param name the claim name
+     *
+     * @return the claim value, or <code>null</code> if neither token contains it
+     */
+    public Object getClaim(String name) {
+        Object value = this.userClaims.getBody().get(name);
+        return value != null ? value : this.accessToken.getBody().get(name);
+    }
+
+    public Jws<Claims> getAccessToken() {
+        return this.accessToken;
+    }
+
+    public Jws<Claims> getUserClaims() {
+        return this.userClaims;
+    }
+
+    @Override
+    public String toString() {
+        return "AWSAlbPrincipal{name=" + getName() + "}";
+    }
+}
@@ -0,0 +1,123 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Validates the two tokens the ALB forwards with every authenticated request - the access token
+ * (<code>x-amzn-oidc-accesstoken</code>) and the user claims token (<code>x-amzn-oidc-data</code>) - and checks that
+ * both belong to the same subject. The result is one {@link AWSAlbPrincipal}.
+ * <p>
+ * With an executor the user claims token is validated on it while the access token is validated on the calling
+ * thread, so a request with two key cache misses waits for one fetch instead of two. If the access token is invalid,
+ * the user claims result is not awaited. Wrapping the validators in a {@link CachingJwtTokenValidator} makes the
+ * repeated requests of a session skip the verification of both tokens.
+ */
+public class AWSAlbTokenPairValidator {
+
+    public static final String ACCESS_TOKEN_HEADER = "x-amzn-oidc-accesstoken";
+
+    public static final String USER_CLAIMS_HEADER = "x-amzn-oidc-data";
+
+    private final Logger logger = LoggerFactory.getLogger(AWSAlbTokenPairValidator.class);
+
+    private final JwtTokenValidator accessTokenValidator;
+
+    private final JwtTokenValidator userClaimsValidator;
+
+    private final Executor executor;
+
+    /**
+     * Validates both tokens on the calling thread.
+     *
+     * @param accessTokenValidator the validator of the access token
+     * @param userClaimsValidator the validator of the user claims token
+     */
+    public AWSAlbTokenPairValidator(JwtTokenValidator accessTokenValidator, JwtTokenValidator userClaimsValidator) {
+        this(accessTokenValidator, userClaimsValidator, null);
+    }
+
+    /**
+     * @param accessTokenValidator the validator of the access token
+     * @param userClaimsValidator the validator of the user claims token
+     * @param executor the executor validating the user claims token, <code>null</code> for the calling thread
+     */
+    public AWSAlbTokenPairValidator(JwtTokenValidator accessTokenValidator, JwtTokenValidator userClaimsValidator,
+                                    Executor executor) {
+        if (accessTokenValidator == null) {
+            throw new IllegalArgumentException("accessTokenValidator must be provided!");
+        }
+        if (userClaimsValidator == null) {
+            throw new IllegalArgumentException("userClaimsValidator must be provided!");
+        }
+        logger.debug("accessTokenValidator: {}, userClaimsValidator: {}, executor: {}",
+                accessTokenValidator, userClaimsValidator, executor);
+        this.accessTokenValidator = accessTokenValidator;
+        this.userClaimsValidator = userClaimsValidator;
+        this.executor = executor;
+    }
+
+    /**
+     * @param accessToken the value of the <code>x-amzn-oidc-accesstoken</code> header
+     * @param userClaimsToken the value of the <code>x-amzn-oidc-data</code> header
+     *
+     * @return the principal authenticated by both tokens
+     *
+     * @throws InvalidTokenException if a token is invalid or the subjects don't match
+     */
+    public AWSAlbPrincipal validateTokens(String accessToken, String userClaimsToken) throws InvalidTokenException {
+        CompletableFuture<ValidationResult> userClaimsResult = null;
+        if (this.executor != null) {
+            userClaimsResult = CompletableFuture.supplyAsync(
+                    () -> this.userClaimsValidator.tryValidateToken(userClaimsToken), this.executor);
+        }
+        ValidationResult accessTokenResult = this.accessTokenValidator.tryValidateToken(accessToken);
+        if (!accessTokenResult.isValid()) {
+            if (userClaimsResult != null) {
+                userClaimsResult.cancel(false);
+            }
+            throw accessTokenResult.getException();
+        }
+        Jws<Claims> userClaims = userClaimsResult != null
+                ? await(userClaimsResult).getOrThrow()
+                : this.userClaimsValidator.validateToken(userClaimsToken);
+        Jws<Claims> access = accessTokenResult.getClaimsJws();
+        String subject = userClaims.getBody().getSubject();
+        if (subject == null || !Objects.equals(subject, access.getBody().getSubject())) {
+            throw new InvalidTokenException(RejectionReason.INVALID_CLAIM,
+                    "sub of the access token and the user claims token don't match!");
+        }
+        return new AWSAlbPrincipal(access, userClaims);
+    }
+
+    private static ValidationResult await(CompletableFuture<ValidationResult> result) {
+        try {
+            return result.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public JwtTokenValidator getAccessTokenValidator() {
+        return this.accessTokenValidator;
+    }
+
+    public JwtTokenValidator getUserClaimsValidator() {
+        return this.userClaimsValidator;
+    }
+
+    public Executor getExecutor() {
+        return this.executor;
+    }
+}
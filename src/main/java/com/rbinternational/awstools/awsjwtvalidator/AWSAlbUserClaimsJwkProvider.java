@@ -1,23 +1,25 @@
 package com.rbinternational.awstools.awsjwtvalidator;
 
-import com.auth0.jwk.GuavaCachedJwkProvider;
 import com.auth0.jwk.Jwk;
 import com.auth0.jwk.JwkProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FileNotFoundException;
 import java.net.URL;
-import java.security.Key;
 import java.security.PublicKey;
-import java.util.Collections;
-import java.util.Objects;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 /**
  * "Fake" {@link JwkProvider} for the public keys of the AWS ALB. These are not JWK, but simple PEM encoded keys, returned
  * as text. The {@link JwkProvider#get(String)} is overwritten to return "fake" {@link Jwk}, containing the key ID and
- * the public key as read from the ALB public keys URL. To avoid unnecessary network traffic the keys are
- * cached for 24 hours, keyed on their key IDs - see here the provided {@link GuavaCachedJwkProvider} implementation.
+ * the public key as read from the ALB public keys URL. To avoid unnecessary network traffic the default providers
+ * serve the fetched keys from the {@link KeyRegistry} of a {@link RefreshAheadJwkProvider}, which re-fetches them in
+ * the background on a shared daemon thread. With a {@link KeyCacheConfig} the keys are cached in a
+ * {@link CachingJwkProvider} instead. Misses go through a {@link GuardedJwkProvider}, so unknown key IDs can't flood
+ * the ALB key endpoint.
  */
 public class AWSAlbUserClaimsJwkProvider implements JwkProvider {
 
@@ -27,8 +29,19 @@ public class AWSAlbUserClaimsJwkProvider implements JwkProvider {
      */
     public static final String EU_CENTRAL_1_ALB_KEY_ENDPOINT = "https://public-keys.auth.elb.eu-central-1.amazonaws.com";
 
+    private static final String REGIONAL_KEY_ENDPOINT_TEMPLATE = "https://public-keys.auth.elb.%s.amazonaws.com";
+
     private static final String PUBLIC_KEY_ALGORITHM = "EC";
 
+    private static final Pattern KEY_ID_PATTERN = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    /**
+     * The ALB signs with UUIDs as key IDs. Key IDs in this format can use the reserved fetches of the
+     * {@link GuardedJwkProvider}.
+     */
+    public static final Predicate<String> KEY_ID_FORMAT = keyId -> KEY_ID_PATTERN.matcher(keyId).matches();
+
     private final Logger logger = LoggerFactory.getLogger(AWSAlbUserClaimsJwkProvider.class);
 
     private final String baseAlbEndpoint;
@@ -52,53 +65,48 @@ public class AWSAlbUserClaimsJwkProvider implements JwkProvider {
     public Jwk get(String keyId) throws InvalidTokenException {
         logger.debug("getting JWK for keyID: {}", keyId);
         if (keyId == null || keyId.trim().length() == 0) {
-            throw new InvalidTokenException("keyId is missing!");
+            throw new InvalidTokenException(RejectionReason.UNKNOWN_KID, "keyId is missing!");
         }
+        ValidationMetricsListener metrics = ValidationMetrics.listener();
+        long start = ValidationMetrics.start(metrics);
         try {
             String url = this.baseAlbEndpoint + "/" + keyId;
             logger.debug("ALB public key url: {}", url);
-            String readPEM = this.publicKeyReader.readPublicKey(new URL(url));
-            logger.debug("keyId: {}, got PEM: {}", keyId, readPEM);
-            Key publicKey = Utils.publicKeyFromPEM(readPEM, PUBLIC_KEY_ALGORITHM);
-            logger.debug("converted public key: {} for PEM: {}", publicKey, readPEM);
-            return new AWSAlbUserClaimsJwk(keyId, publicKey);
+            byte[] der = this.publicKeyReader.readPublicKeyDER(new URL(url));
+            PublicKey publicKey = Utils.publicKeyFromDER(der, PUBLIC_KEY_ALGORITHM);
+            if (logger.isDebugEnabled()) {
+                logger.debug("keyId: {}, converted public key: {} from {} bytes of DER", keyId, publicKey,
+                        der.length);
+            }
+            if (metrics != null) {
+                metrics.keyFetched(System.nanoTime() - start);
+            }
+            return new PublicKeyJwk(keyId, null, publicKey);
+        }
+        catch (FileNotFoundException e) {
+            if (metrics != null) {
+                metrics.keyFetchFailed(System.nanoTime() - start);
+            }
+            throw new InvalidTokenException(RejectionReason.UNKNOWN_KID, "keyId " + keyId + " is not known", e);
         }
         catch (Throwable t) {
+            if (metrics != null) {
+                metrics.keyFetchFailed(System.nanoTime() - start);
+            }
             throw new InvalidTokenException(t);
         }
     }
 
-    private static class AWSAlbUserClaimsJwk extends Jwk {
-
-        private Key publicKey;
-
-        public AWSAlbUserClaimsJwk(String id, Key publicKey) {
-            super(id, "", "", "", Collections.emptyList(),
-                    "", Collections.emptyList(), "", Collections.emptyMap());
-            if (publicKey == null) {
-                throw new IllegalArgumentException("public key must be provided!");
-            }
-            this.publicKey = publicKey;
-        }
-
-
-        @Override
-        public PublicKey getPublicKey() {
-            return (PublicKey) publicKey;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof AWSAlbUserClaimsJwk)) return false;
-            AWSAlbUserClaimsJwk awsAlbUserClaimsJwk = (AWSAlbUserClaimsJwk) o;
-            return getId().equals(awsAlbUserClaimsJwk.getId()) && publicKey.equals(awsAlbUserClaimsJwk.publicKey);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(getId(), publicKey);
+    /**
+     * @param region the region of the load balancer, e.g. <code>eu-west-1</code>
+     *
+     * @return the ALB public keys URL of the region
+     */
+    public static String regionalKeyEndpoint(String region) {
+        if (region == null || region.trim().isEmpty()) {
+            throw new IllegalArgumentException("region must be provided!");
         }
+        return String.format(REGIONAL_KEY_ENDPOINT_TEMPLATE, region);
     }
 
     public static JwkProvider createProvider() {
@@ -113,10 +121,84 @@ public class AWSAlbUserClaimsJwkProvider implements JwkProvider {
         return createProviderInt(baseAlbEndpoint, reader);
     }
 
+    /**
+     * Creates the default provider of <code>eu-central-1</code>, which starts with the keys of the snapshot and writes
+     * every fetched key back to it.
+     *
+     * @param snapshotStore the snapshot of the keys, <code>null</code> for none
+     */
+    public static JwkProvider createProvider(KeySnapshotStore snapshotStore) {
+        return createProviderInt(EU_CENTRAL_1_ALB_KEY_ENDPOINT, null, snapshotStore);
+    }
+
+    /**
+     * Creates a provider, which serves the known keys from memory and re-fetches them in the background every
+     * {@link RefreshAheadJwkProvider#DEFAULT_REFRESH_INTERVAL}, instead of blocking a request when a cached key expires.
+     *
+     * @param baseAlbEndpoint the region specific ALB public keys URL
+     * @param reader the reader for the public keys, if <code>null</code> {@link HttpPublicKeyReader} is used
+     *
+     * @return the provider, to be closed when no longer used
+     */
+    public static RefreshAheadJwkProvider createRefreshAheadProvider(String baseAlbEndpoint, PublicKeyReader reader) {
+        return createRefreshAheadProvider(baseAlbEndpoint, reader, RefreshAheadJwkProvider.DEFAULT_REFRESH_INTERVAL);
+    }
+
+    public static RefreshAheadJwkProvider createRefreshAheadProvider(String baseAlbEndpoint, PublicKeyReader reader,
+                                                                     Duration refreshInterval) {
+        return createRefreshAheadProvider(baseAlbEndpoint, reader, refreshInterval, null);
+    }
+
+    /**
+     * Creates a refresh-ahead provider, which starts with the keys of the snapshot and keeps the snapshot up to date.
+     *
+     * @param baseAlbEndpoint the region specific ALB public keys URL
+     * @param reader the reader for the public keys, if <code>null</code> {@link HttpPublicKeyReader} is used
+     * @param refreshInterval the interval between the background refreshes
+     * @param snapshotStore the snapshot of the keys, <code>null</code> for none
+     *
+     * @return the provider, to be closed when no longer used
+     */
+    public static RefreshAheadJwkProvider createRefreshAheadProvider(String baseAlbEndpoint, PublicKeyReader reader,
+                                                                     Duration refreshInterval,
+                                                                     KeySnapshotStore snapshotStore) {
+        if (reader == null) {
+            reader = new HttpPublicKeyReader();
+        }
+        return new RefreshAheadJwkProvider(new GuardedJwkProvider(
+                new AWSAlbUserClaimsJwkProvider(baseAlbEndpoint, reader), KEY_ID_FORMAT), refreshInterval, snapshotStore);
+    }
+
+    /**
+     * @param baseAlbEndpoint the region specific ALB public keys URL
+     * @param reader the reader for the public keys, if <code>null</code> {@link HttpPublicKeyReader} is used
+     * @param cacheConfig the sizing and expiry of the key cache
+     *
+     * @return the caching provider
+     */
+    public static CachingJwkProvider createProvider(String baseAlbEndpoint, PublicKeyReader reader,
+                                                    KeyCacheConfig cacheConfig) {
+        if (reader == null) {
+            reader = new HttpPublicKeyReader();
+        }
+        return new CachingJwkProvider(new GuardedJwkProvider(
+                new AWSAlbUserClaimsJwkProvider(baseAlbEndpoint, reader), KEY_ID_FORMAT), cacheConfig);
+    }
+
     private static JwkProvider createProviderInt(String url, PublicKeyReader reader) {
+        return createProviderInt(url, reader, null);
+    }
+
+    /**
+     * The known keys are read from the registry without a cache lookup, and refreshed every
+     * {@link RefreshAheadJwkProvider#DEFAULT_REFRESH_INTERVAL} on the shared refresh thread.
+     */
+    private static JwkProvider createProviderInt(String url, PublicKeyReader reader, KeySnapshotStore snapshotStore) {
         if (reader == null) {
-            reader  = new HttpPublicKeyReader();
+            reader = new HttpPublicKeyReader();
         }
-        return new GuavaCachedJwkProvider(new AWSAlbUserClaimsJwkProvider(url, reader), 5, 24, TimeUnit.HOURS);
+        return new RefreshAheadJwkProvider(new GuardedJwkProvider(new AWSAlbUserClaimsJwkProvider(url, reader),
+                KEY_ID_FORMAT), RefreshAheadJwkProvider.DEFAULT_REFRESH_INTERVAL,
+                RefreshAheadJwkProvider.defaultRefreshScheduler(), snapshotStore);
     }
 }
@@ -1,54 +1,35 @@
 package com.rbinternational.awstools.awsjwtvalidator;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
-import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SigningKeyResolver;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
 
 /**
  * Validates ALB user claims tokens as described in <a href="https://docs.aws.amazon.com/elasticloadbalancing/latest/application/listener-authenticate-users.html#user-claims-encoding">AWS ALB documentation</a>
+ * <p>
+ * Tokens are screened with {@link TokenScreener#forAnyAlgorithm()}, restricting them to ES256 is opt-in with
+ * <code>setTokenScreener(TokenScreener.forUserClaims())</code>.
  */
-public class AWSAlbUserClaimsTokenValidator implements JwtTokenValidator {
-
-    private final Logger logger = LoggerFactory.getLogger(AWSAlbUserClaimsTokenValidator.class);
-
-    private final SigningKeyResolver signingKeyResolver;
+public class AWSAlbUserClaimsTokenValidator extends AbstractJwtTokenValidator {
 
     public AWSAlbUserClaimsTokenValidator() {
-        this.signingKeyResolver = createKeyResolver();
+        this(createKeyResolver());
     }
 
-    public AWSAlbUserClaimsTokenValidator(SigningKeyResolver signingKeyResolver) {
-        if (signingKeyResolver == null) {
-            throw new IllegalArgumentException("signingKeyResolver must be provided");
-        }
-        this.signingKeyResolver = signingKeyResolver;
+    /**
+     * Starts with the keys of the snapshot and writes every fetched key back to it.
+     *
+     * @param snapshotStore the snapshot of the keys, see {@link AWSAlbUserClaimsJwkProvider#createProvider(KeySnapshotStore)}
+     */
+    public AWSAlbUserClaimsTokenValidator(KeySnapshotStore snapshotStore) {
+        this(new AWSAlbUserClaimsSigningKeyResolver(AWSAlbUserClaimsJwkProvider.createProvider(snapshotStore)));
     }
 
-    @Override
-    public Jws<Claims> validateToken(String token) throws InvalidTokenException {
-        logger.debug("processing token: {}", token);
-        try {
-            Jws<Claims> claimsJws = Jwts.parserBuilder()
-                    .setSigningKeyResolver(getSigningKeyResolver())
-                    .build()
-                    .parseClaimsJws(token);
-            logger.debug("Got claims: {}, for token: {}", claimsJws, token);
-            return claimsJws;
-        }
-        catch (Exception e) {
-            logger.error(e.getMessage(), e);
-            throw new InvalidTokenException(e);
-        }
-    }
-
-    public SigningKeyResolver getSigningKeyResolver() {
-        return signingKeyResolver;
+    public AWSAlbUserClaimsTokenValidator(SigningKeyResolver signingKeyResolver) {
+        super(signingKeyResolver, Collections.emptyMap(), TokenScreener.forAnyAlgorithm());
     }
 
-    private SigningKeyResolver createKeyResolver() {
+    private static SigningKeyResolver createKeyResolver() {
         return new AWSAlbUserClaimsSigningKeyResolver(AWSAlbUserClaimsJwkProvider.createProvider());
     }
 
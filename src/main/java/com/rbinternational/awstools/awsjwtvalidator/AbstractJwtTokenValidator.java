@@ -0,0 +1,538 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.JwkProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParserBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolver;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Common part of the validators: validates the signature with the keys of a {@link SigningKeyResolver} and requires
+ * the given claim values. The {@link JwtParser} is built once and shared, as it is immutable and thread-safe - it is
+ * only rebuilt if the signing key resolver changes. An optional {@link TokenScreener} rejects malformed, expired and
+ * wrong-issuer tokens before the key lookup and the signature verification.
+ */
+public abstract class AbstractJwtTokenValidator implements JwtTokenValidator, AsyncJwtTokenValidator {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final RejectionLogger rejectionLogger = new RejectionLogger(logger);
+
+    private final Map<String, Object> requiredClaims;
+
+    private volatile SigningKeyResolver signingKeyResolver;
+
+    private volatile JwtParser jwtParser;
+
+    private volatile RejectionMode rejectionMode = RejectionMode.DETAILED;
+
+    private volatile TokenScreener tokenScreener;
+
+    private volatile ClaimsProjection claimsProjection;
+
+    /**
+     * @param signingKeyResolver resolver for the keys validating the signature
+     * @param requiredClaims claim names and the values they must have
+     */
+    protected AbstractJwtTokenValidator(SigningKeyResolver signingKeyResolver, Map<String, Object> requiredClaims) {
+        this(signingKeyResolver, requiredClaims, null);
+    }
+
+    /**
+     * @param signingKeyResolver resolver for the keys validating the signature
+     * @param requiredClaims claim names and the values they must have
+     * @param tokenScreener the pre-check of the tokens, <code>null</code> for none
+     */
+    protected AbstractJwtTokenValidator(SigningKeyResolver signingKeyResolver, Map<String, Object> requiredClaims,
+                                        TokenScreener tokenScreener) {
+        if (signingKeyResolver == null) {
+            throw new IllegalArgumentException("signingKeyResolver must be provided");
+        }
+        this.requiredClaims = Collections.unmodifiableMap(new LinkedHashMap<>(requiredClaims));
+        this.signingKeyResolver = signingKeyResolver;
+        this.jwtParser = createParser(signingKeyResolver);
+        this.tokenScreener = tokenScreener;
+    }
+
+    @Override
+    public Jws<Claims> validateToken(String token) throws InvalidTokenException {
+        return validate(this.jwtParser, token).getOrThrow();
+    }
+
+    /**
+     * Validates a token given as ASCII bytes, e.g. a header value from the network buffer. This is a convenience
+     * wrapper, not a zero-copy validation: only the screening works on the bytes in place, so a token rejected by the
+     * {@link TokenScreener} never becomes a {@link String}. Any other token is copied into a {@link String}, as jjwt
+     * only parses strings.
+     *
+     * @param token the bytes containing the token
+     * @param offset the index of the first byte of the token
+     * @param length the number of bytes of the token
+     *
+     * @return the claims in the token
+     *
+     * @throws InvalidTokenException if the token is invalid
+     */
+    public Jws<Claims> validateToken(byte[] token, int offset, int length) throws InvalidTokenException {
+        return validate(this.jwtParser, token, offset, length).getOrThrow();
+    }
+
+    /**
+     * Validates the remaining bytes of the buffer as ASCII token, see {@link #validateToken(byte[], int, int)}. The
+     * position of the buffer is not changed. A convenience wrapper - a buffer without accessible array, e.g. a direct
+     * buffer, is copied into a byte array first.
+     *
+     * @param token the buffer containing the token
+     *
+     * @return the claims in the token
+     *
+     * @throws InvalidTokenException if the token is invalid
+     */
+    public Jws<Claims> validateToken(ByteBuffer token) throws InvalidTokenException {
+        if (token == null) {
+            return validateToken((String) null);
+        }
+        if (token.hasArray()) {
+            return validateToken(token.array(), token.arrayOffset() + token.position(), token.remaining());
+        }
+        byte[] bytes = new byte[token.remaining()];
+        token.duplicate().get(bytes);
+        return validateToken(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Validates the token, e.g. a header value of a web framework which keeps the headers as {@link CharSequence}. A
+     * convenience wrapper, which copies the token into a {@link String} before screening it.
+     *
+     * @param token the token to validate
+     *
+     * @return the claims in the token
+     *
+     * @throws InvalidTokenException if the token is invalid
+     */
+    public Jws<Claims> validateToken(CharSequence token) throws InvalidTokenException {
+        return validateToken(token != null ? token.toString() : null);
+    }
+
+    /**
+     * Validates the token without throwing on rejection. In {@link RejectionMode#LIGHTWEIGHT} a rejection allocates
+     * nothing beyond the exception of the underlying framework.
+     */
+    @Override
+    public ValidationResult tryValidateToken(String token) {
+        return validate(this.jwtParser, token);
+    }
+
+    /**
+     * Validates the token and converts the claims to the given type with Jackson. Unknown claims are ignored, numeric
+     * dates like <code>exp</code> are seconds since the epoch. Combined with {@link ClaimsProjection#of(Class)} only
+     * the properties of the type are read from the payload.
+     *
+     * @param token the token to validate
+     * @param type the type to convert the claims to
+     *
+     * @return the claims as instance of the type
+     *
+     * @throws InvalidTokenException if the token is invalid or the claims can't be converted
+     */
+    public <T> T validateToken(String token, Class<T> type) throws InvalidTokenException {
+        Claims claims = validateToken(token).getBody();
+        try {
+            return ProjectingDeserializer.OBJECT_MAPPER.convertValue(claims, type);
+        }
+        catch (IllegalArgumentException e) {
+            throw new InvalidTokenException(RejectionReason.INVALID_CLAIM, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Validates the token on the calling thread, if the signing key is available or can't be fetched asynchronously.
+     * The key can be fetched asynchronously, if the signing key resolver is a {@link JwkSigningKeyResolver} using an
+     * {@link AsyncJwkProvider}. In that case a missing key is fetched by the provider and the token is validated on
+     * the thread completing the fetch.
+     *
+     * @param token the token to validate
+     *
+     * @return stage completed with the claims in the token, or exceptionally with an {@link InvalidTokenException}
+     */
+    @Override
+    public CompletionStage<Jws<Claims>> validateTokenAsync(String token) {
+        SigningKeyResolver resolver = this.signingKeyResolver;
+        AsyncJwkProvider asyncJwkProvider = asyncJwkProvider(resolver);
+        CompletableFuture<Jws<Claims>> result = new CompletableFuture<>();
+        if (asyncJwkProvider == null) {
+            validateTokenInto(token, result, false);
+            return result;
+        }
+        TokenScreener.Screening screening = inspect(token);
+        boolean passed = screening.getReason() == null;
+        String keyId = passed ? ((JwkSigningKeyResolver) resolver).lookupKeyId(token, screening.getKeyId()) : null;
+        if (passed && keyId != null && asyncJwkProvider.getIfPresent(keyId) == null) {
+            logger.debug("fetching missing key: {} asynchronously", keyId);
+            asyncJwkProvider.getAsync(keyId).whenComplete((jwk, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(rejection(unwrap(failure)));
+                }
+                else {
+                    validateTokenInto(token, result, true);
+                }
+            });
+            return result;
+        }
+        validateTokenInto(token, result, passed);
+        return result;
+    }
+
+    /**
+     * Validates the tokens in parallel on the {@link ForkJoinPool#commonPool() common pool}.
+     *
+     * @see #validateTokens(List, Executor)
+     */
+    public List<ValidationResult> validateTokens(List<String> tokens) {
+        return validateTokens(tokens, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Validates the tokens of the stream in parallel on the given executor.
+     *
+     * @see #validateTokens(List, Executor)
+     */
+    public List<ValidationResult> validateTokens(Stream<String> tokens, Executor executor) {
+        if (tokens == null) {
+            throw new IllegalArgumentException("tokens must be provided!");
+        }
+        return validateTokens(tokens.collect(Collectors.toList()), executor);
+    }
+
+    /**
+     * Validates the tokens in parallel on the given executor. The tokens are screened and grouped by the key ID of
+     * their header in one pass, and each signing key is resolved only once for the whole batch - if a key can't be
+     * resolved, all tokens signed with it are invalid without any further lookup. Keys are not resolved for tokens
+     * rejected by the screener. An invalid token doesn't fail the batch, its result holds the
+     * {@link InvalidTokenException} instead.
+     *
+     * @param tokens the tokens to validate
+     * @param executor the executor verifying the signatures
+     *
+     * @return the results in the order of the tokens
+     */
+    public List<ValidationResult> validateTokens(List<String> tokens, Executor executor) {
+        if (tokens == null) {
+            throw new IllegalArgumentException("tokens must be provided!");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must be provided!");
+        }
+        logger.debug("processing batch of {} tokens", tokens.size());
+        TokenScreener.Screening[] screenings = new TokenScreener.Screening[tokens.size()];
+        for (int i = 0; i < tokens.size(); i++) {
+            screenings[i] = inspect(tokens.get(i));
+        }
+        SigningKeyResolver batchResolver = this.signingKeyResolver;
+        JwtParser parser = this.jwtParser;
+        if (batchResolver instanceof JwkSigningKeyResolver) {
+            JwkSigningKeyResolver jwkResolver = (JwkSigningKeyResolver) batchResolver;
+            batchResolver = new BatchSigningKeyResolver(jwkResolver, resolveKeys(tokens, screenings, jwkResolver));
+            parser = createParser(batchResolver);
+        }
+        JwtParser batchParser = parser;
+        ValidationResult[] results = new ValidationResult[tokens.size()];
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[tokens.size()];
+        for (int i = 0; i < tokens.size(); i++) {
+            int index = i;
+            String token = tokens.get(i);
+            boolean passed = screenings[i].getReason() == null;
+            tasks[i] = CompletableFuture.runAsync(() -> results[index] = validate(batchParser, token, passed),
+                    executor);
+        }
+        CompletableFuture.allOf(tasks).join();
+        return Arrays.asList(results);
+    }
+
+    public RejectionMode getRejectionMode() {
+        return this.rejectionMode;
+    }
+
+    /**
+     * @param rejectionMode how rejected tokens are reported, {@link RejectionMode#DETAILED} by default
+     */
+    public void setRejectionMode(RejectionMode rejectionMode) {
+        if (rejectionMode == null) {
+            throw new IllegalArgumentException("rejectionMode must be provided!");
+        }
+        this.rejectionMode = rejectionMode;
+    }
+
+    public TokenScreener getTokenScreener() {
+        return this.tokenScreener;
+    }
+
+    /**
+     * @param tokenScreener the pre-check of the tokens, <code>null</code> to disable it
+     */
+    public void setTokenScreener(TokenScreener tokenScreener) {
+        this.tokenScreener = tokenScreener;
+    }
+
+    public ClaimsProjection getClaimsProjection() {
+        return this.claimsProjection;
+    }
+
+    /**
+     * Restricts the claims read from the tokens to the projection, the claims needed for the validation are always
+     * read. Rebuilds the parser.
+     *
+     * @param claimsProjection the claims to read, <code>null</code> to read all claims
+     */
+    public void setClaimsProjection(ClaimsProjection claimsProjection) {
+        this.claimsProjection = claimsProjection;
+        this.jwtParser = createParser(this.signingKeyResolver);
+    }
+
+    public SigningKeyResolver getSigningKeyResolver() {
+        return this.signingKeyResolver;
+    }
+
+    /**
+     * Replaces the signing key resolver and rebuilds the parser.
+     *
+     * @param signingKeyResolver the new resolver
+     */
+    protected void setSigningKeyResolver(SigningKeyResolver signingKeyResolver) {
+        if (signingKeyResolver == null) {
+            throw new IllegalArgumentException("signingKeyResolver must be provided");
+        }
+        this.jwtParser = createParser(signingKeyResolver);
+        this.signingKeyResolver = signingKeyResolver;
+    }
+
+    /**
+     * Resolves the keys of all distinct key IDs of the screened tokens in the batch, a failed resolution is kept as
+     * {@link InvalidTokenException}.
+     */
+    private Map<String, Object> resolveKeys(List<String> tokens, TokenScreener.Screening[] screenings,
+                                            JwkSigningKeyResolver resolver) {
+        Map<String, Object> keys = new HashMap<>();
+        for (int i = 0; i < screenings.length; i++) {
+            TokenScreener.Screening screening = screenings[i];
+            if (screening.getReason() != null) {
+                continue;
+            }
+            String keyId = resolver.lookupKeyId(tokens.get(i), screening.getKeyId());
+            if (keyId != null && !keys.containsKey(keyId)) {
+                try {
+                    keys.put(keyId, resolver.resolveSigningKey(keyId));
+                }
+                catch (InvalidTokenException e) {
+                    keys.put(keyId, e);
+                }
+            }
+        }
+        logger.debug("resolved {} keys for the batch", keys.size());
+        return keys;
+    }
+
+    private ValidationResult validate(JwtParser parser, String token) {
+        return validate(parser, token, false);
+    }
+
+    /**
+     * @param screened <code>true</code> if the token already passed the screener
+     */
+    private ValidationResult validate(JwtParser parser, String token, boolean screened) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("processing token: {}", ValidationLogging.redact(token));
+        }
+        ValidationMetricsListener metrics = ValidationMetrics.listener();
+        long start = ValidationMetrics.start(metrics);
+        try {
+            TokenScreener screener = screened ? null : this.tokenScreener;
+            if (screener != null) {
+                if (this.rejectionMode == RejectionMode.LIGHTWEIGHT) {
+                    RejectionReason reason = screener.check(token);
+                    if (reason != null) {
+                        return reject(reason, metrics, start);
+                    }
+                }
+                else {
+                    screener.screen(token);
+                }
+            }
+            return verify(parser, token, metrics, start);
+        }
+        catch (Exception e) {
+            return reject(e, metrics, start);
+        }
+    }
+
+    private ValidationResult validate(JwtParser parser, byte[] token, int offset, int length) {
+        if (token == null) {
+            return validate(parser, null);
+        }
+        ValidationMetricsListener metrics = ValidationMetrics.listener();
+        long start = ValidationMetrics.start(metrics);
+        try {
+            if (offset < 0 || length < 0 || offset > token.length - length) {
+                throw new IllegalArgumentException("offset and length must be within the token bytes!");
+            }
+            TokenScreener screener = this.tokenScreener;
+            if (screener != null) {
+                if (this.rejectionMode == RejectionMode.LIGHTWEIGHT) {
+                    RejectionReason reason = screener.check(token, offset, length);
+                    if (reason != null) {
+                        return reject(reason, metrics, start);
+                    }
+                }
+                else {
+                    screener.screen(token, offset, length);
+                }
+            }
+            String jwt = new String(token, offset, length, StandardCharsets.ISO_8859_1);
+            if (logger.isDebugEnabled()) {
+                logger.debug("processing token: {}", ValidationLogging.redact(jwt));
+            }
+            return verify(parser, jwt, metrics, start);
+        }
+        catch (Exception e) {
+            return reject(e, metrics, start);
+        }
+    }
+
+    private ValidationResult verify(JwtParser parser, String token, ValidationMetricsListener metrics, long start) {
+        Jws<Claims> claimsJws = parser.parseClaimsJws(token);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Got claims: {}, for token: {}",
+                    ValidationLogging.redactClaims(claimsJws), ValidationLogging.redact(token));
+        }
+        if (metrics != null) {
+            metrics.tokenValidated(System.nanoTime() - start);
+        }
+        return ValidationResult.valid(claimsJws);
+    }
+
+    private ValidationResult reject(Exception failure, ValidationMetricsListener metrics, long start) {
+        InvalidTokenException rejection = rejection(failure);
+        if (metrics != null) {
+            metrics.tokenRejected(rejection.getReason(), System.nanoTime() - start);
+        }
+        this.rejectionLogger.log(failure);
+        return ValidationResult.invalid(rejection);
+    }
+
+    /**
+     * Rejects a token the screener rejected in {@link RejectionMode#LIGHTWEIGHT}, with the preallocated exception of
+     * the reason - no exception is created on this path.
+     */
+    private ValidationResult reject(RejectionReason reason, ValidationMetricsListener metrics, long start) {
+        InvalidTokenException rejection = InvalidTokenException.of(reason);
+        if (metrics != null) {
+            metrics.tokenRejected(reason, System.nanoTime() - start);
+        }
+        this.rejectionLogger.log(rejection);
+        return ValidationResult.invalid(rejection);
+    }
+
+    /**
+     * Screens the token and reads its key ID in one pass - without screener only the key ID is read.
+     */
+    private TokenScreener.Screening inspect(String token) {
+        TokenScreener screener = this.tokenScreener;
+        if (screener == null) {
+            return TokenScreener.Screening.unscreened(TokenHeaders.keyId(token));
+        }
+        return screener.inspect(token);
+    }
+
+    private InvalidTokenException rejection(Throwable failure) {
+        if (this.rejectionMode == RejectionMode.LIGHTWEIGHT) {
+            return InvalidTokenException.of(RejectionReason.of(failure));
+        }
+        return new InvalidTokenException(failure);
+    }
+
+    private void validateTokenInto(String token, CompletableFuture<Jws<Claims>> result, boolean screened) {
+        ValidationResult validationResult = validate(this.jwtParser, token, screened);
+        if (validationResult.isValid()) {
+            result.complete(validationResult.getClaimsJws());
+        }
+        else {
+            result.completeExceptionally(validationResult.getException());
+        }
+    }
+
+    private JwtParser createParser(SigningKeyResolver signingKeyResolver) {
+        JwtParserBuilder builder = Jwts.parserBuilder()
+                .setSigningKeyResolver(signingKeyResolver);
+        this.requiredClaims.forEach(builder::require);
+        ClaimsProjection projection = this.claimsProjection;
+        if (projection != null) {
+            builder.deserializeJsonWith(new ProjectingDeserializer(projection, this.requiredClaims.keySet()));
+        }
+        return builder.build();
+    }
+
+    private static AsyncJwkProvider asyncJwkProvider(SigningKeyResolver signingKeyResolver) {
+        if (signingKeyResolver instanceof JwkSigningKeyResolver) {
+            JwkProvider jwkProvider = ((JwkSigningKeyResolver) signingKeyResolver).getJwkProvider();
+            if (jwkProvider instanceof AsyncJwkProvider) {
+                return (AsyncJwkProvider) jwkProvider;
+            }
+        }
+        return null;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * Serves the keys resolved for a batch, a failed resolution is rethrown for every token using the key.
+     */
+    private static class BatchSigningKeyResolver extends SigningKeyResolverAdapter {
+
+        private final JwkSigningKeyResolver resolver;
+
+        private final Map<String, Object> keys;
+
+        BatchSigningKeyResolver(JwkSigningKeyResolver resolver, Map<String, Object> keys) {
+            this.resolver = resolver;
+            this.keys = keys;
+        }
+
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            Object key = this.keys.get(this.resolver.lookupKeyId(header));
+            if (key instanceof Key) {
+                return (Key) key;
+            }
+            if (key instanceof InvalidTokenException) {
+                throw (InvalidTokenException) key;
+            }
+            throw new InvalidTokenException(RejectionReason.UNKNOWN_KID,
+                    "keyId " + header.getKeyId() + " is unknown");
+        }
+    }
+}
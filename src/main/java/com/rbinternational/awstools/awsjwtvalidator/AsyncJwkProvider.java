@@ -0,0 +1,57 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * {@link JwkProvider} which can tell whether a key is available without blocking and can fetch a missing key
+ * without blocking the caller. Used by {@link AsyncJwtTokenValidator} implementations.
+ */
+public interface AsyncJwkProvider extends JwkProvider {
+
+    /**
+     * @param keyId the key ID
+     *
+     * @return the key, if it is available in memory, otherwise <code>null</code> - never blocks
+     */
+    Jwk getIfPresent(String keyId);
+
+    /**
+     * @param keyId the key ID
+     *
+     * @return future completed with the key, or exceptionally if it can't be fetched
+     */
+    CompletableFuture<Jwk> getAsync(String keyId);
+
+    /**
+     * Fetches the given keys in parallel and waits for all of them, e.g. before a service reports to be ready. Keys
+     * which can't be fetched are skipped.
+     *
+     * @param keyIds the key IDs to fetch
+     *
+     * @return the number of available keys
+     */
+    default int prefetch(Collection<String> keyIds) {
+        List<CompletableFuture<Jwk>> fetches = new ArrayList<>(keyIds.size());
+        for (String keyId : keyIds) {
+            fetches.add(getAsync(keyId));
+        }
+        int fetched = 0;
+        for (CompletableFuture<Jwk> fetch : fetches) {
+            try {
+                fetch.join();
+                fetched++;
+            }
+            catch (CompletionException e) {
+                // not available, the key is fetched again on use
+            }
+        }
+        return fetched;
+    }
+}
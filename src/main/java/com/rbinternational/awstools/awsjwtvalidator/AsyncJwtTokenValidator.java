@@ -0,0 +1,21 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking counterpart of {@link JwtTokenValidator}. Tokens whose signing key is already available are validated
+ * on the calling thread and returned as completed stage, otherwise the key is fetched without blocking the caller and
+ * the token is validated once the key arrives.
+ */
+public interface AsyncJwtTokenValidator {
+
+    /**
+     * @param token the token to validate
+     *
+     * @return stage completed with the claims in the token, or exceptionally with an {@link InvalidTokenException}
+     */
+    CompletionStage<Jws<Claims>> validateTokenAsync(String token);
+}
@@ -0,0 +1,222 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caching {@link JwkProvider}, keyed on the key IDs. The keys are loaded by the delegate on the given executor, so a
+ * cache miss can be awaited without blocking ({@link #getAsync(String)}) - the blocking {@link #get(String)} waits for
+ * the same load. Concurrent requests for a missing key share one load, failed loads are not cached. Every lookup
+ * is reported as key cache hit or miss to the {@link ValidationMetrics} listener, and the cache keeps its own
+ * statistics ({@link #getStats()}). Size and expiry are configured with a {@link KeyCacheConfig}.
+ */
+public class CachingJwkProvider implements AsyncJwkProvider {
+
+    private static final int DEFAULT_FETCH_THREADS = 4;
+
+    private final Logger logger = LoggerFactory.getLogger(CachingJwkProvider.class);
+
+    private final AsyncLoadingCache<String, Jwk> cache;
+
+    /**
+     * Loads the keys on a shared pool of daemon threads.
+     *
+     * @param delegate the provider fetching the keys
+     * @param maximumSize the maximum number of cached keys
+     * @param expireAfterWrite how long a key is cached after it was fetched
+     */
+    public CachingJwkProvider(JwkProvider delegate, long maximumSize, Duration expireAfterWrite) {
+        this(delegate, maximumSize, expireAfterWrite, DefaultFetchExecutor.INSTANCE);
+    }
+
+    /**
+     * @param delegate the provider fetching the keys
+     * @param maximumSize the maximum number of cached keys
+     * @param expireAfterWrite how long a key is cached after it was fetched
+     * @param executor the executor running the (blocking) fetches of the delegate
+     */
+    public CachingJwkProvider(JwkProvider delegate, long maximumSize, Duration expireAfterWrite,
+                              Executor executor) {
+        this(delegate, KeyCacheConfig.builder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite).build(),
+                executor);
+    }
+
+    /**
+     * Loads the keys on a shared pool of daemon threads.
+     *
+     * @param delegate the provider fetching the keys
+     * @param config the sizing and expiry of the cache
+     */
+    public CachingJwkProvider(JwkProvider delegate, KeyCacheConfig config) {
+        this(delegate, config, DefaultFetchExecutor.INSTANCE);
+    }
+
+    /**
+     * An expired key is kept for the stale window of the config, and is refreshed in the background - at the latest
+     * when it expires - so it can be served further while the delegate fails.
+     *
+     * @param delegate the provider fetching the keys
+     * @param config the sizing and expiry of the cache
+     * @param executor the executor running the (blocking) fetches of the delegate
+     */
+    public CachingJwkProvider(JwkProvider delegate, KeyCacheConfig config, Executor executor) {
+        this(delegate, config, executor, Ticker.systemTicker());
+    }
+
+    CachingJwkProvider(JwkProvider delegate, KeyCacheConfig config, Executor executor, Ticker ticker) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must be provided!");
+        }
+        if (config == null) {
+            throw new IllegalArgumentException("config must be provided!");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must be provided!");
+        }
+        logger.debug("delegate: {}, config: {}", delegate, config);
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getExpireAfterWrite().plus(config.getStaleWhileError()))
+                .executor(executor)
+                .ticker(ticker)
+                .recordStats();
+        Duration refreshAfterWrite = config.getRefreshAfterWrite();
+        if (refreshAfterWrite == null && !config.getStaleWhileError().isZero()
+                && !config.getExpireAfterWrite().isZero()) {
+            refreshAfterWrite = config.getExpireAfterWrite();
+        }
+        if (refreshAfterWrite != null) {
+            builder.refreshAfterWrite(refreshAfterWrite);
+        }
+        this.cache = builder.buildAsync(delegate::get);
+    }
+
+    @Override
+    public Jwk get(String keyId) throws JwkException {
+        if (keyId == null) {
+            throw new InvalidTokenException(RejectionReason.UNKNOWN_KID, "keyId is missing!");
+        }
+        reportLookup(keyId);
+        try {
+            return this.cache.get(keyId).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvalidTokenException(e);
+        }
+        catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    @Override
+    public Jwk getIfPresent(String keyId) {
+        if (keyId == null) {
+            return null;
+        }
+        CompletableFuture<Jwk> future = this.cache.getIfPresent(keyId);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return future.join();
+    }
+
+    @Override
+    public CompletableFuture<Jwk> getAsync(String keyId) {
+        if (keyId == null) {
+            CompletableFuture<Jwk> failed = new CompletableFuture<>();
+            failed.completeExceptionally(
+                    new InvalidTokenException(RejectionReason.UNKNOWN_KID, "keyId is missing!"));
+            return failed;
+        }
+        reportLookup(keyId);
+        return this.cache.get(keyId);
+    }
+
+    /**
+     * @return the hit, miss, load and eviction counts of the cache
+     */
+    public CacheStats getStats() {
+        return this.cache.synchronous().stats();
+    }
+
+    /**
+     * @return the approximate number of cached keys
+     */
+    public long getEstimatedSize() {
+        return this.cache.synchronous().estimatedSize();
+    }
+
+    /**
+     * @return the shared pool of daemon threads for blocking key fetches, also used by the other key providers
+     */
+    static Executor defaultFetchExecutor() {
+        return DefaultFetchExecutor.INSTANCE;
+    }
+
+    private void reportLookup(String keyId) {
+        ValidationMetricsListener metrics = ValidationMetrics.listener();
+        if (metrics != null) {
+            if (this.cache.getIfPresent(keyId) != null) {
+                metrics.keyCacheHit();
+            }
+            else {
+                metrics.keyCacheMiss();
+            }
+        }
+    }
+
+    /**
+     * Rethrows the failure of the delegate as it was thrown.
+     */
+    private static JwkException rethrow(Throwable failure) throws JwkException {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure instanceof JwkException) {
+            throw (JwkException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        throw new InvalidTokenException(failure);
+    }
+
+    /**
+     * Key fetches block on network I/O, so they don't run on the common fork-join pool.
+     */
+    private static final class DefaultFetchExecutor {
+
+        private static final ExecutorService INSTANCE = create();
+
+        private static ExecutorService create() {
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_FETCH_THREADS, DEFAULT_FETCH_THREADS,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "aws-jwt-key-fetch-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
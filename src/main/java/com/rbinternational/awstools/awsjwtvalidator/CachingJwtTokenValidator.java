@@ -0,0 +1,238 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongSupplier;
+
+/**
+ * Caching decorator for a {@link JwtTokenValidator}. The ALB sends the same tokens with every request of a user
+ * session, so the result of the validation is cached, keyed on the SHA-256 digest of the raw token. A successful
+ * validation is cached until the token expires (<code>exp</code>), but not longer than the configured maximum time to
+ * live. A failed validation is cached for a short time as well, so repeated invalid tokens are rejected without
+ * repeating the signature verification.
+ * <p>
+ * The cached {@link Jws} instances are shared between the callers and must not be modified.
+ */
+public class CachingJwtTokenValidator implements JwtTokenValidator {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    public static final Duration DEFAULT_MAXIMUM_TTL = Duration.ofMinutes(5);
+
+    public static final Duration DEFAULT_FAILURE_TTL = Duration.ofSeconds(5);
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not available", e);
+        }
+    });
+
+    private final Logger logger = LoggerFactory.getLogger(CachingJwtTokenValidator.class);
+
+    private final JwtTokenValidator delegate;
+
+    private final Cache<TokenDigest, ValidationResult> cache;
+
+    /**
+     * Caches up to {@link #DEFAULT_MAXIMUM_SIZE} results, valid tokens for at most {@link #DEFAULT_MAXIMUM_TTL} and
+     * invalid ones for {@link #DEFAULT_FAILURE_TTL}.
+     *
+     * @param delegate the validator doing the actual validation
+     */
+    public CachingJwtTokenValidator(JwtTokenValidator delegate) {
+        this(delegate, DEFAULT_MAXIMUM_SIZE, DEFAULT_MAXIMUM_TTL, DEFAULT_FAILURE_TTL);
+    }
+
+    /**
+     * @param delegate the validator doing the actual validation
+     * @param maximumSize the maximum number of cached results
+     * @param maximumTtl the maximum time a valid token is cached, even if it expires later
+     * @param failureTtl the time an invalid token is cached
+     */
+    public CachingJwtTokenValidator(JwtTokenValidator delegate, long maximumSize, Duration maximumTtl,
+                                    Duration failureTtl) {
+        this(delegate, maximumSize, maximumTtl, failureTtl, Ticker.systemTicker(), System::currentTimeMillis,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param ticker the time source of the cache
+     * @param currentTimeMillis the wall clock the <code>exp</code> of the tokens is compared to, must advance with the
+     * ticker
+     */
+    CachingJwtTokenValidator(JwtTokenValidator delegate, long maximumSize, Duration maximumTtl,
+                             Duration failureTtl, Ticker ticker, LongSupplier currentTimeMillis, Executor executor) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must be provided!");
+        }
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative!");
+        }
+        if (maximumTtl == null || maximumTtl.isNegative()) {
+            throw new IllegalArgumentException("maximumTtl must be provided and not negative!");
+        }
+        if (failureTtl == null || failureTtl.isNegative()) {
+            throw new IllegalArgumentException("failureTtl must be provided and not negative!");
+        }
+        logger.debug("maximumSize: {}, maximumTtl: {}, failureTtl: {}", maximumSize, maximumTtl, failureTtl);
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ResultExpiry(maximumTtl.toNanos(), failureTtl.toNanos(), currentTimeMillis))
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Jws<Claims> validateToken(String token) throws InvalidTokenException {
+        if (token == null) {
+            return this.delegate.validateToken(null);
+        }
+        return tryValidateToken(token).getOrThrow();
+    }
+
+    @Override
+    public ValidationResult tryValidateToken(String token) {
+        if (token == null) {
+            return this.delegate.tryValidateToken(null);
+        }
+        TokenDigest digest = TokenDigest.of(token);
+        ValidationResult cached = this.cache.getIfPresent(digest);
+        if (cached != null) {
+            return cached;
+        }
+        ValidationResult result = this.delegate.tryValidateToken(token);
+        this.cache.put(digest, result);
+        return result;
+    }
+
+    public JwtTokenValidator getDelegate() {
+        return this.delegate;
+    }
+
+    /**
+     * @return the number of validations answered from the cache
+     */
+    public long getHitCount() {
+        return this.cache.stats().hitCount();
+    }
+
+    /**
+     * @return the number of validations passed to the delegate
+     */
+    public long getMissCount() {
+        return this.cache.stats().missCount();
+    }
+
+    /**
+     * @return the number of results removed because of size or expiration
+     */
+    public long getEvictionCount() {
+        return this.cache.stats().evictionCount();
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * Valid tokens live until their <code>exp</code>, capped by the maximum TTL, failures for the failure TTL.
+     */
+    private static final class ResultExpiry implements Expiry<TokenDigest, ValidationResult> {
+
+        private final long maximumTtlNanos;
+
+        private final long failureTtlNanos;
+
+        private final LongSupplier currentTimeMillis;
+
+        ResultExpiry(long maximumTtlNanos, long failureTtlNanos, LongSupplier currentTimeMillis) {
+            this.maximumTtlNanos = maximumTtlNanos;
+            this.failureTtlNanos = failureTtlNanos;
+            this.currentTimeMillis = currentTimeMillis;
+        }
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, ValidationResult value, long currentTime) {
+            if (!value.isValid()) {
+                return this.failureTtlNanos;
+            }
+            Date expiration = value.getClaimsJws().getBody().getExpiration();
+            if (expiration == null) {
+                return this.maximumTtlNanos;
+            }
+            long remainingMillis = expiration.getTime() - this.currentTimeMillis.getAsLong();
+            if (remainingMillis <= 0) {
+                return 0;
+            }
+            return Math.min(this.maximumTtlNanos, Duration.ofMillis(remainingMillis).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, ValidationResult value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, ValidationResult value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * SHA-256 of the token. A cryptographic digest is used on purpose, so a forged token can't be crafted to collide
+     * with a cached valid one.
+     */
+    private static final class TokenDigest {
+
+        private final byte[] digest;
+
+        private final int hash;
+
+        private TokenDigest(byte[] digest) {
+            this.digest = digest;
+            this.hash = Arrays.hashCode(digest);
+        }
+
+        static TokenDigest of(String token) {
+            return new TokenDigest(DIGEST.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TokenDigest)) return false;
+            return Arrays.equals(this.digest, ((TokenDigest) o).digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
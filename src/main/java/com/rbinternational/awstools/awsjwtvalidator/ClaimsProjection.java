@@ -0,0 +1,73 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The claims a caller reads from the validated tokens. With a projection set on a validator, only these claims are
+ * materialized from the token payload - all other values, including nested objects and arrays, are skipped by the
+ * streaming parser without being built. The claims the validation itself needs (<code>exp</code>, <code>nbf</code>,
+ * <code>iat</code> and the required claims of the validator) are always kept.
+ */
+public final class ClaimsProjection {
+
+    private final Set<String> claimNames;
+
+    private ClaimsProjection(Set<String> claimNames) {
+        this.claimNames = Collections.unmodifiableSet(claimNames);
+    }
+
+    /**
+     * @param claimNames the names of the claims to keep
+     *
+     * @return the projection on the given claims
+     */
+    public static ClaimsProjection of(String... claimNames) {
+        if (claimNames == null) {
+            throw new IllegalArgumentException("claimNames must be provided!");
+        }
+        return of(Arrays.asList(claimNames));
+    }
+
+    public static ClaimsProjection of(Collection<String> claimNames) {
+        if (claimNames == null) {
+            throw new IllegalArgumentException("claimNames must be provided!");
+        }
+        return new ClaimsProjection(new LinkedHashSet<>(claimNames));
+    }
+
+    /**
+     * @param type the class the claims are converted to, see {@link AbstractJwtTokenValidator#validateToken(String, Class)}
+     *
+     * @return the projection on the JSON properties of the class, as Jackson sees them
+     */
+    public static ClaimsProjection of(Class<?> type) {
+        if (type == null) {
+            throw new IllegalArgumentException("type must be provided!");
+        }
+        ObjectMapper objectMapper = ProjectingDeserializer.OBJECT_MAPPER;
+        BeanDescription description = objectMapper.getDeserializationConfig()
+                .introspect(objectMapper.constructType(type));
+        Set<String> names = new LinkedHashSet<>();
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            names.add(property.getName());
+        }
+        return new ClaimsProjection(names);
+    }
+
+    public Set<String> getClaimNames() {
+        return this.claimNames;
+    }
+
+    @Override
+    public String toString() {
+        return "ClaimsProjection" + this.claimNames;
+    }
+}
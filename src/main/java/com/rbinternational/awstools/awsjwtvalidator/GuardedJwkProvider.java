@@ -0,0 +1,176 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.NetworkException;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+/**
+ * Protects the key endpoint from requests carrying unknown or forged key IDs. Key IDs which the key endpoint doesn't
+ * know are remembered for a while (negative cache) and rejected without a network call. Failed fetches, e.g. network
+ * errors and timeouts, are not remembered, so the next request fetches again. Every fetch passed to the delegate is
+ * limited by a token bucket. Key IDs in the expected format of the key source can also use a small reserved bucket, so
+ * a flood of malformed key IDs can't block the fetch of a rotated key - and a flood of well-formed key IDs is still
+ * limited by both buckets. Rejected requests fail fast with an {@link InvalidTokenException}.
+ * <p>
+ * Intended to sit below a key cache, so only cache misses are counted against the fetch limit.
+ */
+public class GuardedJwkProvider implements JwkProvider {
+
+    public static final Duration DEFAULT_FAILURE_TTL = Duration.ofMinutes(1);
+
+    public static final long DEFAULT_MAXIMUM_FAILED_KEYS = 10_000;
+
+    public static final int DEFAULT_MAXIMUM_BURST = 10;
+
+    public static final double DEFAULT_FETCHES_PER_SECOND = 1;
+
+    /**
+     * Burst of the bucket reserved for key IDs in the format of the key source.
+     */
+    public static final int DEFAULT_RESERVED_BURST = 2;
+
+    /**
+     * Refill rate of the bucket reserved for key IDs in the format of the key source, one fetch per 10 seconds.
+     */
+    public static final double DEFAULT_RESERVED_FETCHES_PER_SECOND = 0.1;
+
+    /**
+     * No key ID uses the reserved fetches.
+     */
+    public static final Predicate<String> NO_KEY_ID_FORMAT = keyId -> false;
+
+    private final Logger logger = LoggerFactory.getLogger(GuardedJwkProvider.class);
+
+    private final JwkProvider delegate;
+
+    private final Cache<String, Boolean> failedKeyIds;
+
+    private final TokenBucket fetchLimit;
+
+    private final TokenBucket reservedFetchLimit;
+
+    private final Predicate<String> keyIdFormat;
+
+    /**
+     * Remembers unknown key IDs for {@link #DEFAULT_FAILURE_TTL} and allows bursts of {@link #DEFAULT_MAXIMUM_BURST}
+     * fetches, refilled at {@link #DEFAULT_FETCHES_PER_SECOND}.
+     *
+     * @param delegate the provider fetching the keys
+     */
+    public GuardedJwkProvider(JwkProvider delegate) {
+        this(delegate, NO_KEY_ID_FORMAT);
+    }
+
+    /**
+     * Same as {@link #GuardedJwkProvider(JwkProvider)}, but key IDs in the expected format can also use the
+     * {@link #DEFAULT_RESERVED_BURST reserved fetches}.
+     *
+     * @param delegate the provider fetching the keys
+     * @param keyIdFormat returns <code>true</code> for key IDs in the format of the key source
+     */
+    public GuardedJwkProvider(JwkProvider delegate, Predicate<String> keyIdFormat) {
+        this(delegate, DEFAULT_FAILURE_TTL, DEFAULT_MAXIMUM_FAILED_KEYS, DEFAULT_MAXIMUM_BURST,
+                DEFAULT_FETCHES_PER_SECOND, keyIdFormat);
+    }
+
+    /**
+     * @param delegate the provider fetching the keys
+     * @param failureTtl how long a key ID unknown to the key source is rejected
+     * @param maximumFailedKeys the maximum number of remembered unknown key IDs
+     * @param maximumBurst the maximum number of fetches in a burst
+     * @param fetchesPerSecond the sustained number of fetches per second
+     */
+    public GuardedJwkProvider(JwkProvider delegate, Duration failureTtl, long maximumFailedKeys, int maximumBurst,
+                              double fetchesPerSecond) {
+        this(delegate, failureTtl, maximumFailedKeys, maximumBurst, fetchesPerSecond, NO_KEY_ID_FORMAT);
+    }
+
+    /**
+     * @param delegate the provider fetching the keys
+     * @param failureTtl how long a key ID unknown to the key source is rejected
+     * @param maximumFailedKeys the maximum number of remembered unknown key IDs
+     * @param maximumBurst the maximum number of fetches in a burst
+     * @param fetchesPerSecond the sustained number of fetches per second
+     * @param keyIdFormat returns <code>true</code> for key IDs in the format of the key source, which can also use the
+     * {@link #DEFAULT_RESERVED_BURST reserved fetches}
+     */
+    public GuardedJwkProvider(JwkProvider delegate, Duration failureTtl, long maximumFailedKeys, int maximumBurst,
+                              double fetchesPerSecond, Predicate<String> keyIdFormat) {
+        this(delegate, failureTtl, maximumFailedKeys, maximumBurst, fetchesPerSecond, keyIdFormat,
+                Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    GuardedJwkProvider(JwkProvider delegate, Duration failureTtl, long maximumFailedKeys, int maximumBurst,
+                       double fetchesPerSecond, Predicate<String> keyIdFormat, Ticker ticker, Executor executor) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must be provided!");
+        }
+        if (failureTtl == null || failureTtl.isNegative()) {
+            throw new IllegalArgumentException("failureTtl must be provided and not negative!");
+        }
+        if (keyIdFormat == null) {
+            throw new IllegalArgumentException("keyIdFormat must be provided!");
+        }
+        logger.debug("delegate: {}, failureTtl: {}, maximumFailedKeys: {}, maximumBurst: {}, fetchesPerSecond: {}",
+                delegate, failureTtl, maximumFailedKeys, maximumBurst, fetchesPerSecond);
+        this.delegate = delegate;
+        this.failedKeyIds = Caffeine.newBuilder()
+                .maximumSize(maximumFailedKeys)
+                .expireAfterWrite(failureTtl)
+                .ticker(ticker)
+                .executor(executor)
+                .build();
+        this.fetchLimit = new TokenBucket(maximumBurst, fetchesPerSecond, ticker);
+        this.reservedFetchLimit = new TokenBucket(DEFAULT_RESERVED_BURST, DEFAULT_RESERVED_FETCHES_PER_SECOND, ticker);
+        this.keyIdFormat = keyIdFormat;
+    }
+
+    @Override
+    public Jwk get(String keyId) throws JwkException {
+        if (keyId == null) {
+            throw new InvalidTokenException(RejectionReason.UNKNOWN_KID, "keyId is missing!");
+        }
+        if (this.failedKeyIds.getIfPresent(keyId) != null) {
+            throw new InvalidTokenException(RejectionReason.UNKNOWN_KID,
+                    "keyId " + keyId + " is not known to the key source");
+        }
+        if (!this.fetchLimit.tryAcquire()
+                && !(this.keyIdFormat.test(keyId) && this.reservedFetchLimit.tryAcquire())) {
+            throw new InvalidTokenException(RejectionReason.KEY_FETCH_FAILED,
+                    "key fetch rate limit exceeded for keyId " + keyId);
+        }
+        try {
+            return this.delegate.get(keyId);
+        }
+        catch (JwkException | RuntimeException e) {
+            if (isUnknownKeyId(e)) {
+                this.failedKeyIds.put(keyId, Boolean.TRUE);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the key source answered that it doesn't know the key ID, <code>false</code> if the
+     * fetch failed
+     */
+    private static boolean isUnknownKeyId(Exception e) {
+        if (e instanceof SigningKeyNotFoundException) {
+            return !(e instanceof NetworkException);
+        }
+        return e instanceof InvalidTokenException
+                && ((InvalidTokenException) e).getReason() == RejectionReason.UNKNOWN_KID;
+    }
+}
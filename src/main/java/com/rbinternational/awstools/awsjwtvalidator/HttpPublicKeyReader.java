@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -12,11 +13,13 @@ import java.net.Proxy;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * {@link HttpURLConnection} based {@link PublicKeyReader} implementation. By default converts the received bytes
  * using the {@link StandardCharsets#UTF_8} character encoding. The stream is read as {@link InputStreamReader},
- * meaning that the EOL characters are removed!
+ * meaning that the EOL characters are removed! {@link #readPublicKeyDER(URL)} decodes the PEM straight from the
+ * response stream instead.
  */
 public class HttpPublicKeyReader implements PublicKeyReader {
 
@@ -24,10 +27,19 @@ public class HttpPublicKeyReader implements PublicKeyReader {
 
     private static final int DEFAULT_TIMEOUT = 1000; // ms
 
+    private static final int READ_BUFFER_SIZE = 1024;
+
+    /**
+     * PEM encoded public keys are well below 1 KB, anything above this limit is not a key.
+     */
+    private static final int MAX_RESPONSE_SIZE = 64 * 1024;
+
     private final Logger logger = LoggerFactory.getLogger(HttpPublicKeyReader.class);
 
     private final Charset charset;
 
+    private final boolean asciiCompatible;
+
     private Proxy proxy;
 
     /**
@@ -49,19 +61,43 @@ public class HttpPublicKeyReader implements PublicKeyReader {
         }
         logger.debug("using charset: {}", charset);
         this.charset = charset;
+        this.asciiCompatible = isAsciiCompatible(charset);
     }
 
     @Override
     public String readPublicKey(URL url) throws IOException {
-        logger.debug("readPublicKey for url: {}", url);
-        logger.debug("using proxy: {} for url: {}", this.proxy, url);
+        String response = read(url, this::readResponse);
+        logger.debug("response of {} chars", response.length());
+        return response;
+    }
+
+    /**
+     * Decodes the PEM while the response is read, if the charset is ASCII compatible.
+     */
+    @Override
+    public byte[] readPublicKeyDER(URL url) throws IOException {
+        if (!this.asciiCompatible) {
+            return PublicKeyReader.super.readPublicKeyDER(url);
+        }
+        return read(url, is -> {
+            try (InputStream stream = is) {
+                return PEMDecoder.decode(stream, new byte[READ_BUFFER_SIZE], MAX_RESPONSE_SIZE).get(0);
+            }
+        });
+    }
+
+    private <T> T read(URL url, ResponseReader<T> responseReader) throws IOException {
+        logger.debug("readPublicKey for url: {}, using proxy: {}", url, this.proxy);
+        ValidationMetricsListener metrics = ValidationMetrics.listener();
+        long start = ValidationMetrics.start(metrics);
         HttpURLConnection connection = null;
+        int code = -1;
         try {
             connection = this.proxy != null
                     ? (HttpURLConnection) url.openConnection(this.proxy) : (HttpURLConnection) url.openConnection();
             connection.setRequestMethod("GET");
             connection.setConnectTimeout(DEFAULT_TIMEOUT);
-            int code = connection.getResponseCode();
+            code = connection.getResponseCode();
             logger.debug("got http code {}", code);
             if (code != 200) {
                 String error = "Unknown error reading from the url";
@@ -72,16 +108,17 @@ public class HttpPublicKeyReader implements PublicKeyReader {
                     logger.debug("Got error: {}", error);
                 }
                 logger.error("Error in readPublicKey, got http code: {}, error message: {}", code, error);
-                throw new IOException(error);
+                throw responseError(code, error);
             }
-            String response = readResponse(connection.getInputStream());
-            logger.debug("response: {}", response);
-            return response;
+            return responseReader.read(connection.getInputStream());
         }
         finally {
             if (connection != null) {
                 connection.disconnect();
             }
+            if (metrics != null) {
+                reportRequest(metrics, code, System.nanoTime() - start);
+            }
         }
     }
 
@@ -98,6 +135,34 @@ public class HttpPublicKeyReader implements PublicKeyReader {
         this.proxy = proxy;
     }
 
+    /**
+     * @return <code>true</code> if the charset encodes the PEM characters as ASCII, so the bytes can be decoded as is
+     */
+    static boolean isAsciiCompatible(Charset charset) {
+        String pemCharacters = "-AZaz09+/= \r\n";
+        return Arrays.equals(pemCharacters.getBytes(charset), pemCharacters.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return a {@link FileNotFoundException} if the key doesn't exist (404 and 410, as {@link HttpURLConnection}
+     * does), otherwise an {@link IOException}
+     */
+    static IOException responseError(int code, String error) {
+        if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_GONE) {
+            return new FileNotFoundException(error);
+        }
+        return new IOException(error);
+    }
+
+    static void reportRequest(ValidationMetricsListener metrics, int code, long durationNanos) {
+        if (code < 0) {
+            metrics.httpRequestFailed(durationNanos);
+        }
+        else {
+            metrics.httpRequestCompleted(code, durationNanos);
+        }
+    }
+
     private String readResponse(InputStream inputStream) throws IOException {
         String str;
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, this.charset))) {
@@ -108,4 +173,13 @@ public class HttpPublicKeyReader implements PublicKeyReader {
             return out.toString();
         }
     }
+
+    /**
+     * Reads the body of a successful response.
+     */
+    @FunctionalInterface
+    interface ResponseReader<T> {
+
+        T read(InputStream inputStream) throws IOException;
+    }
 }
@@ -1,19 +1,79 @@
 package com.rbinternational.awstools.awsjwtvalidator;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 /**
- * Custom exception which wraps the underlying framework exceptions.
+ * Custom exception which wraps the underlying framework exceptions. Every instance carries the
+ * {@link RejectionReason}, derived from the wrapped exception if not given explicitly.
+ * <p>
+ * {@link #of(RejectionReason)} returns preallocated instances without stack trace and cause, which are shared between
+ * all threads - see {@link RejectionMode#LIGHTWEIGHT}.
  */
 public class InvalidTokenException extends RuntimeException {
 
+    private static final Map<RejectionReason, InvalidTokenException> PREALLOCATED = preallocate();
+
+    private final RejectionReason reason;
+
     public InvalidTokenException(String message) {
-        super(message);
+        this(RejectionReason.OTHER, message);
     }
 
     public InvalidTokenException(Throwable cause) {
         super(cause);
+        this.reason = RejectionReason.of(cause);
     }
 
     public InvalidTokenException(String message, Throwable cause) {
         super(message, cause);
+        this.reason = RejectionReason.of(cause);
+    }
+
+    public InvalidTokenException(RejectionReason reason, String message) {
+        super(message);
+        this.reason = requireReason(reason);
+    }
+
+    public InvalidTokenException(RejectionReason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = requireReason(reason);
+    }
+
+    /**
+     * Creates an exception without stack trace and suppressed exceptions.
+     */
+    protected InvalidTokenException(RejectionReason reason, String message, Throwable cause,
+                                    boolean writableStackTrace) {
+        super(message, cause, false, writableStackTrace);
+        this.reason = requireReason(reason);
+    }
+
+    /**
+     * @param reason the reason of the rejection
+     *
+     * @return the shared, stackless exception for the reason
+     */
+    public static InvalidTokenException of(RejectionReason reason) {
+        return PREALLOCATED.get(requireReason(reason));
+    }
+
+    public RejectionReason getReason() {
+        return this.reason;
+    }
+
+    private static RejectionReason requireReason(RejectionReason reason) {
+        if (reason == null) {
+            throw new IllegalArgumentException("reason must be provided!");
+        }
+        return reason;
+    }
+
+    private static Map<RejectionReason, InvalidTokenException> preallocate() {
+        Map<RejectionReason, InvalidTokenException> exceptions = new EnumMap<>(RejectionReason.class);
+        for (RejectionReason reason : RejectionReason.values()) {
+            exceptions.put(reason, new InvalidTokenException(reason, "token rejected: " + reason, null, false));
+        }
+        return exceptions;
     }
 }
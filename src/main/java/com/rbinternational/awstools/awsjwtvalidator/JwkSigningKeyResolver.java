@@ -0,0 +1,94 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.JwkProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.Key;
+
+/**
+ * Resolves the signing key by the key ID (<code>kid</code>) of the token header from a {@link JwkProvider}.
+ */
+public abstract class JwkSigningKeyResolver extends SigningKeyResolverAdapter {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final RejectionLogger rejectionLogger = new RejectionLogger(logger);
+
+    private final JwkProvider jwkProvider;
+
+    protected JwkSigningKeyResolver(JwkProvider jwkProvider) {
+        if (jwkProvider == null) {
+            throw new IllegalArgumentException("jwkProvider must be provided!");
+        }
+        logger.debug("jwkProvider: {}", jwkProvider);
+        this.jwkProvider = jwkProvider;
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) throws InvalidTokenException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("resolveSigningKey for header: {}, claims: {}",
+                    header, ValidationLogging.redactClaims(claims));
+        }
+        return resolveSigningKey(lookupKeyId(header));
+    }
+
+    /**
+     * @param header the token header
+     *
+     * @return the key ID to look up in the provider, the <code>kid</code> header by default
+     */
+    protected String lookupKeyId(JwsHeader header) {
+        return header.getKeyId();
+    }
+
+    /**
+     * Used by the asynchronous and batch validation, which read the token header without parsing the token. Must
+     * return the same key ID as {@link #lookupKeyId(JwsHeader)}.
+     *
+     * @param token the compact JWS
+     * @param keyId the <code>kid</code> header of the token
+     *
+     * @return the key ID to look up in the provider, the <code>kid</code> header by default
+     */
+    protected String lookupKeyId(String token, String keyId) {
+        return keyId;
+    }
+
+    /**
+     * @param keyId the key ID to look up in the provider, see {@link #lookupKeyId(JwsHeader)}
+     *
+     * @return the public key with the given key ID
+     *
+     * @throws InvalidTokenException if the key can't be provided
+     */
+    public Key resolveSigningKey(String keyId) throws InvalidTokenException {
+        ValidationMetricsListener metrics = ValidationMetrics.listener();
+        long start = ValidationMetrics.start(metrics);
+        try {
+            Key publicKey = this.jwkProvider.get(keyId).getPublicKey();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Got public key: {}, for keyId: {}", publicKey, keyId);
+            }
+            if (metrics != null) {
+                metrics.keyResolved(System.nanoTime() - start);
+            }
+            return publicKey;
+        }
+        catch (Exception e) {
+            if (metrics != null) {
+                metrics.keyResolutionFailed(System.nanoTime() - start);
+            }
+            this.rejectionLogger.log(e);
+            throw new InvalidTokenException(e);
+        }
+    }
+
+    public JwkProvider getJwkProvider() {
+        return this.jwkProvider;
+    }
+}
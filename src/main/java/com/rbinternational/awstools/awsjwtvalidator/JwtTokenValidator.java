@@ -9,4 +9,20 @@ import io.jsonwebtoken.Jws;
 public interface JwtTokenValidator {
 
     Jws<Claims> validateToken(String token) throws InvalidTokenException;
+
+    /**
+     * Validates the token without throwing on rejection.
+     *
+     * @param token the token to validate
+     *
+     * @return the claims of the valid token, or the exception and its {@link RejectionReason}
+     */
+    default ValidationResult tryValidateToken(String token) {
+        try {
+            return ValidationResult.valid(validateToken(token));
+        }
+        catch (InvalidTokenException e) {
+            return ValidationResult.invalid(e);
+        }
+    }
 }
@@ -0,0 +1,120 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import java.time.Duration;
+
+/**
+ * Sizing and expiry of the key cache of a {@link CachingJwkProvider}, created with {@link #builder()}.
+ * <ul>
+ * <li><code>maximumSize</code> - the maximum number of cached keys</li>
+ * <li><code>expireAfterWrite</code> - how long a fetched key is used</li>
+ * <li><code>refreshAfterWrite</code> - after this time a key is re-fetched in the background on its next use, while
+ * the current key is still served; optional</li>
+ * <li><code>staleWhileError</code> - how long an expired key is served further if it can't be re-fetched; the
+ * re-fetch is attempted in the background on every use after the expiry</li>
+ * </ul>
+ */
+public final class KeyCacheConfig {
+
+    private final long maximumSize;
+
+    private final Duration expireAfterWrite;
+
+    private final Duration refreshAfterWrite;
+
+    private final Duration staleWhileError;
+
+    private KeyCacheConfig(Builder builder) {
+        this.maximumSize = builder.maximumSize;
+        this.expireAfterWrite = builder.expireAfterWrite;
+        this.refreshAfterWrite = builder.refreshAfterWrite;
+        this.staleWhileError = builder.staleWhileError;
+    }
+
+    /**
+     * @return builder for 5 keys, cached for 24 hours, without refresh and stale window
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public long getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return this.expireAfterWrite;
+    }
+
+    /**
+     * @return the refresh interval, <code>null</code> if the keys are not refreshed
+     */
+    public Duration getRefreshAfterWrite() {
+        return this.refreshAfterWrite;
+    }
+
+    public Duration getStaleWhileError() {
+        return this.staleWhileError;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyCacheConfig{maximumSize=" + this.maximumSize + ", expireAfterWrite=" + this.expireAfterWrite
+                + ", refreshAfterWrite=" + this.refreshAfterWrite + ", staleWhileError=" + this.staleWhileError + "}";
+    }
+
+    public static final class Builder {
+
+        private long maximumSize = 5;
+
+        private Duration expireAfterWrite = Duration.ofHours(24);
+
+        private Duration refreshAfterWrite;
+
+        private Duration staleWhileError = Duration.ZERO;
+
+        private Builder() {
+        }
+
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize must be positive!");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder expireAfterWrite(Duration expireAfterWrite) {
+            if (expireAfterWrite == null || expireAfterWrite.isNegative()) {
+                throw new IllegalArgumentException("expireAfterWrite must be provided and not negative!");
+            }
+            this.expireAfterWrite = expireAfterWrite;
+            return this;
+        }
+
+        /**
+         * @param refreshAfterWrite the refresh interval, <code>null</code> to not refresh the keys
+         */
+        public Builder refreshAfterWrite(Duration refreshAfterWrite) {
+            if (refreshAfterWrite != null && (refreshAfterWrite.isNegative() || refreshAfterWrite.isZero())) {
+                throw new IllegalArgumentException("refreshAfterWrite must be positive!");
+            }
+            this.refreshAfterWrite = refreshAfterWrite;
+            return this;
+        }
+
+        public Builder staleWhileError(Duration staleWhileError) {
+            if (staleWhileError == null || staleWhileError.isNegative()) {
+                throw new IllegalArgumentException("staleWhileError must be provided and not negative!");
+            }
+            this.staleWhileError = staleWhileError;
+            return this;
+        }
+
+        public KeyCacheConfig build() {
+            if (this.refreshAfterWrite != null && this.refreshAfterWrite.compareTo(this.expireAfterWrite) >= 0) {
+                throw new IllegalArgumentException("refreshAfterWrite must be shorter than expireAfterWrite!");
+            }
+            return new KeyCacheConfig(this);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.InvalidPublicKeyException;
+import com.auth0.jwk.Jwk;
+
+import java.security.PublicKey;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Copy-on-write registry of the signing keys. There are only a handful of live keys at any time and they change only
+ * on a key fetch or refresh, so every update copies the map and publishes the copy through a volatile reference.
+ * Lookups read that reference - they take no lock and allocate nothing.
+ * <p>
+ * The public key of a {@link Jwk} is built once when it is added. A JWK as read from a <code>jwks.json</code> builds
+ * its key from the modulus and exponent on every {@link Jwk#getPublicKey()} call, the registry serves the prepared key.
+ */
+public class KeyRegistry {
+
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    private volatile Map<String, Jwk> keys = Collections.emptyMap();
+
+    /**
+     * @param keyId the key ID
+     *
+     * @return the key, <code>null</code> if it is not registered
+     */
+    public Jwk get(String keyId) {
+        return keyId != null ? this.keys.get(keyId) : null;
+    }
+
+    /**
+     * @param keyId the key ID
+     *
+     * @return the public key, <code>null</code> if it is not registered
+     */
+    public PublicKey getPublicKey(String keyId) {
+        Jwk jwk = get(keyId);
+        return jwk != null ? ((PublicKeyJwk) jwk).getPublicKey() : null;
+    }
+
+    /**
+     * @return the registered key IDs, not modified by later updates
+     */
+    public Set<String> getKeyIds() {
+        return this.keys.keySet();
+    }
+
+    /**
+     * @return the registered keys by key ID, not modified by later updates
+     */
+    public Map<String, Jwk> getKeys() {
+        return this.keys;
+    }
+
+    public int size() {
+        return this.keys.size();
+    }
+
+    /**
+     * Adds or replaces a key.
+     *
+     * @param jwk the key to add
+     *
+     * @return the registered key, with its prepared public key
+     *
+     * @throws InvalidPublicKeyException if the public key can't be built
+     */
+    public Jwk put(Jwk jwk) throws InvalidPublicKeyException {
+        Jwk prepared = prepare(jwk);
+        this.updateLock.lock();
+        try {
+            Map<String, Jwk> keys = new HashMap<>(this.keys);
+            keys.put(prepared.getId(), prepared);
+            this.keys = Collections.unmodifiableMap(keys);
+        }
+        finally {
+            this.updateLock.unlock();
+        }
+        return prepared;
+    }
+
+    /**
+     * Adds or replaces the keys in a single update.
+     *
+     * @param jwks the keys to add
+     *
+     * @throws InvalidPublicKeyException if the public key of any key can't be built, no key is added then
+     */
+    public void putAll(Collection<? extends Jwk> jwks) throws InvalidPublicKeyException {
+        update(jwks, false);
+    }
+
+    /**
+     * Replaces all keys in a single update.
+     *
+     * @param jwks the new keys
+     *
+     * @throws InvalidPublicKeyException if the public key of any key can't be built, the keys are not changed then
+     */
+    public void replaceAll(Collection<? extends Jwk> jwks) throws InvalidPublicKeyException {
+        update(jwks, true);
+    }
+
+    /**
+     * @param keyId the key ID
+     *
+     * @return <code>true</code> if the key was registered
+     */
+    public boolean remove(String keyId) {
+        this.updateLock.lock();
+        try {
+            if (keyId == null || !this.keys.containsKey(keyId)) {
+                return false;
+            }
+            Map<String, Jwk> keys = new HashMap<>(this.keys);
+            keys.remove(keyId);
+            this.keys = Collections.unmodifiableMap(keys);
+            return true;
+        }
+        finally {
+            this.updateLock.unlock();
+        }
+    }
+
+    private void update(Collection<? extends Jwk> jwks, boolean replace) throws InvalidPublicKeyException {
+        Map<String, Jwk> prepared = new HashMap<>();
+        for (Jwk jwk : jwks) {
+            Jwk preparedJwk = prepare(jwk);
+            prepared.put(preparedJwk.getId(), preparedJwk);
+        }
+        this.updateLock.lock();
+        try {
+            if (!replace) {
+                Map<String, Jwk> keys = new HashMap<>(this.keys);
+                keys.putAll(prepared);
+                prepared = keys;
+            }
+            this.keys = Collections.unmodifiableMap(prepared);
+        }
+        finally {
+            this.updateLock.unlock();
+        }
+    }
+
+    /**
+     * @return the key with its public key built, as the registry serves it
+     *
+     * @throws InvalidPublicKeyException if the public key can't be built
+     */
+    static Jwk prepare(Jwk jwk) throws InvalidPublicKeyException {
+        if (jwk == null || jwk.getId() == null) {
+            throw new IllegalArgumentException("jwk with key ID must be provided!");
+        }
+        if (jwk instanceof PublicKeyJwk) {
+            return jwk;
+        }
+        String algorithm = jwk.getAlgorithm() == null || jwk.getAlgorithm().isEmpty() ? null : jwk.getAlgorithm();
+        return new PublicKeyJwk(jwk.getId(), algorithm, jwk.getPublicKey());
+    }
+}
@@ -0,0 +1,488 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.InvalidPublicKeyException;
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.UrlJwkProvider;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link JwkProvider} for a JWKS endpoint, which always downloads the whole key set. All published keys are kept in a
+ * {@link KeyRegistry}, so lookups take no lock and the public keys are built once per download. The keys are replaced
+ * as a whole:
+ * <ul>
+ * <li>on an unknown key ID, e.g. after a key rotation - but at most once per refresh cooldown, so forged key IDs can't
+ * flood the endpoint; unknown key IDs within the cooldown are rejected without a network call - as
+ * {@link RejectionReason#KEY_FETCH_FAILED} if the last download failed</li>
+ * <li>in the background on the first lookup after the maximum age, while the current keys are still served - again
+ * at most once per refresh cooldown, if the download fails</li>
+ * </ul>
+ * Keys which are no longer published are kept for a grace period, so tokens signed shortly before the rotation still
+ * validate. If a download fails, the current snapshot is kept.
+ * <p>
+ * With a {@link KeySnapshotStore}, the keys of the snapshot are served right from the start and the key set is
+ * downloaded once in the background. The published keys of every download are written to the snapshot on the
+ * executor.
+ */
+public class KeySetJwkProvider implements AsyncJwkProvider {
+
+    public static final Duration DEFAULT_REFRESH_COOLDOWN = Duration.ofMinutes(1);
+
+    public static final Duration DEFAULT_GRACE_PERIOD = Duration.ofHours(1);
+
+    /**
+     * Same as the key cache of the {@link AWSAlbAccessTokenValidator}.
+     */
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(5);
+
+    /**
+     * Downloads all keys of a key set, e.g. {@link UrlJwkProvider#getAll()}.
+     */
+    @FunctionalInterface
+    public interface KeySetSource {
+
+        List<Jwk> getAll() throws JwkException;
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(KeySetJwkProvider.class);
+
+    private final KeySetSource source;
+
+    private final long refreshCooldownNanos;
+
+    private final long gracePeriodNanos;
+
+    private final long maxAgeNanos;
+
+    private final Ticker ticker;
+
+    private final Executor executor;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private final AtomicBoolean backgroundRefresh = new AtomicBoolean();
+
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+
+    private final KeySnapshotStore snapshotStore;
+
+    private final KeyRegistry registry = new KeyRegistry();
+
+    private volatile Retirement retirement = Retirement.NONE;
+
+    private volatile long lastAttemptNanos;
+
+    private volatile Instant downloadedAt;
+
+    private volatile boolean attempted;
+
+    /**
+     * The failure of the last download, <code>null</code> if it succeeded.
+     */
+    private volatile Exception lastFailure;
+
+    /**
+     * Downloads the key set of the URL with the default cooldown, grace period and maximum age.
+     *
+     * @param jwksUrl the issuer or the JWKS URL, see {@link UrlJwkProvider#UrlJwkProvider(String)}
+     */
+    public KeySetJwkProvider(String jwksUrl) {
+        this(jwksUrl, null);
+    }
+
+    /**
+     * Downloads the key set of the URL with the default cooldown, grace period and maximum age, starting with the keys
+     * of the snapshot.
+     *
+     * @param jwksUrl the issuer or the JWKS URL, see {@link UrlJwkProvider#UrlJwkProvider(String)}
+     * @param snapshotStore the snapshot of the keys, <code>null</code> for none
+     */
+    public KeySetJwkProvider(String jwksUrl, KeySnapshotStore snapshotStore) {
+        this(new UrlJwkProvider(jwksUrl)::getAll, DEFAULT_REFRESH_COOLDOWN, DEFAULT_GRACE_PERIOD, DEFAULT_MAX_AGE,
+                snapshotStore);
+    }
+
+    /**
+     * Background refreshes and asynchronous lookups run on the shared fetch threads of the {@link CachingJwkProvider}.
+     *
+     * @param source downloads the key set
+     * @param refreshCooldown the minimum time between two downloads triggered by unknown key IDs
+     * @param gracePeriod how long a key is kept after it disappeared from the key set
+     * @param maxAge the age of the key set after which it is downloaded again in the background
+     */
+    public KeySetJwkProvider(KeySetSource source, Duration refreshCooldown, Duration gracePeriod, Duration maxAge) {
+        this(source, refreshCooldown, gracePeriod, maxAge, null);
+    }
+
+    /**
+     * Starts with the keys of the snapshot. Background refreshes, asynchronous lookups and snapshot writes run on the
+     * shared fetch threads of the {@link CachingJwkProvider}.
+     *
+     * @param source downloads the key set
+     * @param refreshCooldown the minimum time between two downloads triggered by unknown key IDs
+     * @param gracePeriod how long a key is kept after it disappeared from the key set
+     * @param maxAge the age of the key set after which it is downloaded again in the background
+     * @param snapshotStore the snapshot of the keys, <code>null</code> for none
+     */
+    public KeySetJwkProvider(KeySetSource source, Duration refreshCooldown, Duration gracePeriod, Duration maxAge,
+                             KeySnapshotStore snapshotStore) {
+        this(source, refreshCooldown, gracePeriod, maxAge, Ticker.systemTicker(),
+                CachingJwkProvider.defaultFetchExecutor(), snapshotStore);
+    }
+
+    KeySetJwkProvider(KeySetSource source, Duration refreshCooldown, Duration gracePeriod, Duration maxAge,
+                      Ticker ticker, Executor executor) {
+        this(source, refreshCooldown, gracePeriod, maxAge, ticker, executor, null);
+    }
+
+    KeySetJwkProvider(KeySetSource source, Duration refreshCooldown, Duration gracePeriod, Duration maxAge,
+                      Ticker ticker, Executor executor, KeySnapshotStore snapshotStore) {
+        if (source == null) {
+            throw new IllegalArgumentException("source must be provided!");
+        }
+        if (refreshCooldown == null || refreshCooldown.isNegative()) {
+            throw new IllegalArgumentException("refreshCooldown must be provided and not negative!");
+        }
+        if (gracePeriod == null || gracePeriod.isNegative()) {
+            throw new IllegalArgumentException("gracePeriod must be provided and not negative!");
+        }
+        if (maxAge == null || maxAge.isNegative() || maxAge.isZero()) {
+            throw new IllegalArgumentException("maxAge must be provided and positive!");
+        }
+        logger.debug("refreshCooldown: {}, gracePeriod: {}, maxAge: {}", refreshCooldown, gracePeriod, maxAge);
+        this.source = source;
+        this.refreshCooldownNanos = refreshCooldown.toNanos();
+        this.gracePeriodNanos = gracePeriod.toNanos();
+        this.maxAgeNanos = maxAge.toNanos();
+        this.ticker = ticker;
+        this.executor = executor;
+        this.snapshotStore = snapshotStore;
+        if (snapshotStore != null && restore(snapshotStore.load())) {
+            refreshInBackground();
+        }
+    }
+
+    @Override
+    public Jwk get(String keyId) throws JwkException {
+        if (keyId == null) {
+            throw new InvalidTokenException(RejectionReason.UNKNOWN_KID, "keyId is missing!");
+        }
+        Jwk jwk = this.registry.get(keyId);
+        Retirement current = this.retirement;
+        if (jwk != null && !current.retiredNanos.isEmpty() && current.isExpired(keyId, this.ticker.read(),
+                this.gracePeriodNanos)) {
+            throw unknownKeyId(keyId);
+        }
+        ValidationMetricsListener metrics = ValidationMetrics.listener();
+        if (jwk != null) {
+            if (metrics != null) {
+                metrics.keyCacheHit();
+            }
+            if (this.ticker.read() - current.fetchedNanos > this.maxAgeNanos && !inCooldown()) {
+                refreshInBackground();
+            }
+            return jwk;
+        }
+        if (metrics != null) {
+            metrics.keyCacheMiss();
+        }
+        return refreshFor(keyId, current);
+    }
+
+    @Override
+    public Jwk getIfPresent(String keyId) {
+        return this.registry.get(keyId);
+    }
+
+    /**
+     * Returns a known key as completed future, an unknown key is looked up on the executor.
+     */
+    @Override
+    public CompletableFuture<Jwk> getAsync(String keyId) {
+        Jwk jwk = getIfPresent(keyId);
+        if (jwk != null) {
+            return CompletableFuture.completedFuture(jwk);
+        }
+        CompletableFuture<Jwk> result = new CompletableFuture<>();
+        this.executor.execute(() -> {
+            try {
+                result.complete(get(keyId));
+            }
+            catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Downloads the key set now, regardless of the cooldown.
+     *
+     * @throws JwkException if the key set can't be downloaded, the current keys are kept
+     */
+    public void refresh() throws JwkException {
+        this.refreshLock.lock();
+        try {
+            download();
+        }
+        finally {
+            this.refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the keys published by the last download to the snapshot store now. Keys in their grace period are not
+     * written, so a restart doesn't extend their grace period.
+     */
+    public void saveSnapshot() {
+        Instant fetchedAt = this.downloadedAt;
+        if (this.snapshotStore == null || fetchedAt == null) {
+            return;
+        }
+        Retirement current = this.retirement;
+        List<KeySnapshotStore.Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, Jwk> key : this.registry.getKeys().entrySet()) {
+            if (current.retiredNanos.containsKey(key.getKey())) {
+                continue;
+            }
+            try {
+                entries.add(KeySnapshotStore.Entry.of(key.getValue(), fetchedAt));
+            }
+            catch (Exception e) {
+                logger.warn("keyId: {} can't be stored in the snapshot: {}", key.getKey(), e.getMessage());
+            }
+        }
+        try {
+            this.snapshotStore.save(entries);
+        }
+        catch (IOException e) {
+            logger.warn("Key snapshot could not be saved: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the IDs of the keys currently served, including the keys in their grace period
+     */
+    public Set<String> getKeyIds() {
+        return this.registry.getKeyIds();
+    }
+
+    /**
+     * Downloads the key set, unless another caller did while waiting for the lock or the cooldown is not over. While
+     * a download is running, the callers wait for it on the lock - which parks virtual threads without pinning their
+     * carrier threads.
+     */
+    private Jwk refreshFor(String keyId, Retirement seen) throws JwkException {
+        if (inCooldown() && !this.refreshLock.isLocked()) {
+            // another caller may have downloaded the key since the lookup
+            Jwk jwk = this.registry.get(keyId);
+            if (jwk == null) {
+                throw notAvailable(keyId);
+            }
+            return jwk;
+        }
+        this.refreshLock.lock();
+        try {
+            if (this.retirement == seen && !inCooldown()) {
+                logger.debug("downloading key set for unknown keyId: {}", keyId);
+                download();
+            }
+            Jwk jwk = this.registry.get(keyId);
+            if (jwk == null) {
+                throw notAvailable(keyId);
+            }
+            return jwk;
+        }
+        finally {
+            this.refreshLock.unlock();
+        }
+    }
+
+    private void refreshInBackground() {
+        if (!this.backgroundRefresh.compareAndSet(false, true)) {
+            return;
+        }
+        this.executor.execute(() -> {
+            try {
+                refresh();
+            }
+            catch (Exception e) {
+                logger.warn("Refresh of the key set failed, keeping the current keys: {}", e.getMessage());
+            }
+            finally {
+                this.backgroundRefresh.set(false);
+            }
+        });
+    }
+
+    /**
+     * Called with the refresh lock held.
+     */
+    private void download() throws JwkException {
+        long now = this.ticker.read();
+        this.lastAttemptNanos = now;
+        this.attempted = true;
+        ValidationMetricsListener metrics = ValidationMetrics.listener();
+        int published;
+        try {
+            List<Jwk> jwks = this.source.getAll();
+            published = jwks.size();
+            Map<String, Jwk> keys = prepare(jwks);
+            Retirement next = this.retirement.next(this.registry.getKeys(), keys, now, this.gracePeriodNanos);
+            this.registry.replaceAll(keys.values());
+            this.retirement = next;
+        }
+        catch (JwkException | RuntimeException e) {
+            if (metrics != null) {
+                metrics.keyFetchFailed(this.ticker.read() - now);
+            }
+            this.lastFailure = e;
+            throw e;
+        }
+        this.lastFailure = null;
+        this.downloadedAt = Instant.now();
+        if (metrics != null) {
+            metrics.keyFetched(this.ticker.read() - now);
+        }
+        logger.debug("key set of {} keys downloaded, serving {} keys", published, this.registry.size());
+        if (this.snapshotStore != null && this.snapshotPending.compareAndSet(false, true)) {
+            this.executor.execute(() -> {
+                this.snapshotPending.set(false);
+                saveSnapshot();
+            });
+        }
+    }
+
+    /**
+     * Registers the keys of the snapshot as the current key set, which counts as expired - so the first download
+     * retires the keys which are no longer published.
+     *
+     * @return <code>true</code> if any key was restored
+     */
+    private boolean restore(List<KeySnapshotStore.Entry> entries) {
+        List<Jwk> restored = new ArrayList<>(entries.size());
+        for (KeySnapshotStore.Entry entry : entries) {
+            restored.add(entry.toJwk());
+        }
+        try {
+            this.registry.putAll(restored);
+        }
+        catch (InvalidPublicKeyException e) {
+            // the entries hold decoded keys, which are registered as they are
+            throw new IllegalStateException(e);
+        }
+        if (entries.isEmpty()) {
+            return false;
+        }
+        this.retirement = new Retirement(Collections.emptyMap(), this.ticker.read() - this.maxAgeNanos - 1);
+        return true;
+    }
+
+    /**
+     * Builds the public keys of the key set. A key which can't be built, e.g. of an unsupported type or curve, is
+     * skipped - the other keys of the set are still served.
+     *
+     * @throws InvalidPublicKeyException if none of the published keys can be built
+     */
+    private Map<String, Jwk> prepare(List<Jwk> published) throws InvalidPublicKeyException {
+        Map<String, Jwk> keys = new HashMap<>();
+        InvalidPublicKeyException skipped = null;
+        for (Jwk jwk : published) {
+            if (jwk.getId() == null) {
+                continue;
+            }
+            try {
+                keys.put(jwk.getId(), KeyRegistry.prepare(jwk));
+            }
+            catch (InvalidPublicKeyException e) {
+                logger.warn("Skipping key {} of the key set: {}", jwk.getId(), e.getMessage());
+                skipped = e;
+            }
+        }
+        if (keys.isEmpty() && skipped != null) {
+            throw skipped;
+        }
+        return keys;
+    }
+
+    private boolean inCooldown() {
+        return this.attempted && this.ticker.read() - this.lastAttemptNanos < this.refreshCooldownNanos;
+    }
+
+    /**
+     * @return the rejection of a key ID which is not in the key set and can't be downloaded before the cooldown is over
+     */
+    private InvalidTokenException notAvailable(String keyId) {
+        Exception failure = this.lastFailure;
+        if (failure != null) {
+            return new InvalidTokenException(RejectionReason.KEY_FETCH_FAILED,
+                    "keyId " + keyId + " is not available, the last download of the key set failed: "
+                            + failure.getMessage(), failure);
+        }
+        return unknownKeyId(keyId);
+    }
+
+    private static InvalidTokenException unknownKeyId(String keyId) {
+        return new InvalidTokenException(RejectionReason.UNKNOWN_KID, "keyId " + keyId + " is not in the key set");
+    }
+
+    /**
+     * Immutable snapshot of the time each retired key disappeared from the key set, replaced with every download.
+     */
+    private static final class Retirement {
+
+        static final Retirement NONE = new Retirement(Collections.emptyMap(), 0);
+
+        final Map<String, Long> retiredNanos;
+
+        final long fetchedNanos;
+
+        Retirement(Map<String, Long> retiredNanos, long fetchedNanos) {
+            this.retiredNanos = retiredNanos;
+            this.fetchedNanos = fetchedNanos;
+        }
+
+        /**
+         * @return <code>true</code> if the key was retired longer than the grace period ago
+         */
+        boolean isExpired(String keyId, long now, long gracePeriodNanos) {
+            Long retiredAt = this.retiredNanos.get(keyId);
+            return retiredAt != null && now - retiredAt >= gracePeriodNanos;
+        }
+
+        /**
+         * Adds the previous keys which are still in their grace period to the published keys.
+         */
+        Retirement next(Map<String, Jwk> previous, Map<String, Jwk> published, long now, long gracePeriodNanos) {
+            Map<String, Long> retired = new HashMap<>();
+            for (Map.Entry<String, Jwk> key : previous.entrySet()) {
+                if (published.containsKey(key.getKey())) {
+                    continue;
+                }
+                long retiredAt = this.retiredNanos.getOrDefault(key.getKey(), now);
+                if (now - retiredAt < gracePeriodNanos) {
+                    published.put(key.getKey(), key.getValue());
+                    retired.put(key.getKey(), retiredAt);
+                }
+            }
+            return new Retirement(Collections.unmodifiableMap(retired), now);
+        }
+    }
+}
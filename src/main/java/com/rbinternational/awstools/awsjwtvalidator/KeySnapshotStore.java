@@ -0,0 +1,227 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.InvalidPublicKeyException;
+import com.auth0.jwk.Jwk;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Local file with the previously fetched public keys, so a new instance can serve them before its first key fetch.
+ * Every entry holds the key ID, the JWS algorithm, the X.509 encoded key and the time it was fetched. The file is
+ * written to a temporary file next to it and moved into place, so readers never see a partially written snapshot.
+ * <p>
+ * Entries older than the maximum age are not loaded. A missing or unreadable snapshot is treated as empty - the keys
+ * are then fetched as usual.
+ */
+public class KeySnapshotStore {
+
+    /**
+     * The ALB public keys are cached for 24 hours by default, the Cognito keys for 5 days.
+     */
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(5);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Logger logger = LoggerFactory.getLogger(KeySnapshotStore.class);
+
+    private final Path file;
+
+    private final Duration maxAge;
+
+    /**
+     * Loads entries up to {@link #DEFAULT_MAX_AGE} old.
+     *
+     * @param file the snapshot file
+     */
+    public KeySnapshotStore(Path file) {
+        this(file, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * @param file the snapshot file
+     * @param maxAge the maximum age of a loaded entry
+     */
+    public KeySnapshotStore(Path file, Duration maxAge) {
+        if (file == null) {
+            throw new IllegalArgumentException("file must be provided!");
+        }
+        if (maxAge == null || maxAge.isNegative()) {
+            throw new IllegalArgumentException("maxAge must be provided and not negative!");
+        }
+        logger.debug("file: {}, maxAge: {}", file, maxAge);
+        this.file = file;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return the entries of the snapshot which are not older than the maximum age, empty if there is no snapshot
+     */
+    public List<Entry> load() {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(this.file);
+        }
+        catch (NoSuchFileException e) {
+            logger.debug("no key snapshot at: {}", this.file);
+            return Collections.emptyList();
+        }
+        catch (IOException e) {
+            logger.warn("Key snapshot: {} can't be read: {}", this.file, e.getMessage());
+            return Collections.emptyList();
+        }
+        Instant oldest = Instant.now().minus(this.maxAge);
+        List<Entry> entries = new ArrayList<>();
+        try {
+            for (JsonNode node : OBJECT_MAPPER.readTree(content)) {
+                Instant fetchedAt = Instant.ofEpochMilli(node.path("fetchedAt").asLong());
+                if (fetchedAt.isBefore(oldest)) {
+                    continue;
+                }
+                PublicKey publicKey = (PublicKey) Utils.publicKeyFromPEM(node.path("key").asText(),
+                        node.path("keyAlgorithm").asText());
+                String algorithm = node.hasNonNull("alg") ? node.get("alg").asText() : null;
+                entries.add(new Entry(node.path("kid").asText(), algorithm, publicKey, fetchedAt));
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            logger.warn("Key snapshot: {} is invalid: {}", this.file, e.getMessage());
+            return Collections.emptyList();
+        }
+        logger.debug("loaded {} keys from snapshot: {}", entries.size(), this.file);
+        return entries;
+    }
+
+    /**
+     * Replaces the snapshot with the given entries.
+     *
+     * @param entries the entries to store
+     *
+     * @throws IOException if the snapshot can't be written
+     */
+    public void save(Collection<Entry> entries) throws IOException {
+        ArrayNode array = OBJECT_MAPPER.createArrayNode();
+        for (Entry entry : entries) {
+            ObjectNode node = array.addObject();
+            node.put("kid", entry.getKeyId());
+            node.put("alg", entry.getAlgorithm());
+            node.put("keyAlgorithm", entry.getPublicKey().getAlgorithm());
+            node.put("key", Base64.getEncoder().encodeToString(entry.getPublicKey().getEncoded()));
+            node.put("fetchedAt", entry.getFetchedAt().toEpochMilli());
+        }
+        Path directory = this.file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, this.file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, OBJECT_MAPPER.writeValueAsBytes(array));
+            try {
+                Files.move(temp, this.file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+        logger.debug("saved {} keys to snapshot: {}", entries.size(), this.file);
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    public Duration getMaxAge() {
+        return this.maxAge;
+    }
+
+    /**
+     * A public key of the snapshot.
+     */
+    public static final class Entry {
+
+        private final String keyId;
+
+        private final String algorithm;
+
+        private final PublicKey publicKey;
+
+        private final Instant fetchedAt;
+
+        /**
+         * @param keyId the key ID
+         * @param algorithm the JWS algorithm of the key, may be <code>null</code>
+         * @param publicKey the public key
+         * @param fetchedAt the time the key was fetched
+         */
+        public Entry(String keyId, String algorithm, PublicKey publicKey, Instant fetchedAt) {
+            if (keyId == null) {
+                throw new IllegalArgumentException("keyId must be provided!");
+            }
+            if (publicKey == null) {
+                throw new IllegalArgumentException("publicKey must be provided!");
+            }
+            if (fetchedAt == null) {
+                throw new IllegalArgumentException("fetchedAt must be provided!");
+            }
+            this.keyId = keyId;
+            this.algorithm = algorithm;
+            this.publicKey = publicKey;
+            this.fetchedAt = fetchedAt;
+        }
+
+        /**
+         * @param jwk the fetched key
+         * @param fetchedAt the time the key was fetched
+         *
+         * @return the entry of the key
+         *
+         * @throws InvalidPublicKeyException if the public key of the JWK can't be built
+         */
+        public static Entry of(Jwk jwk, Instant fetchedAt) throws InvalidPublicKeyException {
+            String algorithm = jwk.getAlgorithm() == null || jwk.getAlgorithm().isEmpty() ? null : jwk.getAlgorithm();
+            return new Entry(jwk.getId(), algorithm, jwk.getPublicKey(), fetchedAt);
+        }
+
+        /**
+         * @return the key as {@link Jwk}, as served by the key providers
+         */
+        public Jwk toJwk() {
+            return new PublicKeyJwk(this.keyId, this.algorithm, this.publicKey);
+        }
+
+        public String getKeyId() {
+            return this.keyId;
+        }
+
+        public String getAlgorithm() {
+            return this.algorithm;
+        }
+
+        public PublicKey getPublicKey() {
+            return this.publicKey;
+        }
+
+        public Instant getFetchedAt() {
+            return this.fetchedAt;
+        }
+    }
+}
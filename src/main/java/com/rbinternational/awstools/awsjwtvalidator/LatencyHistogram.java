@@ -0,0 +1,74 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two buckets: bucket <code>i</code> counts the durations from
+ * 2<sup>i-1</sup> (inclusive) to 2<sup>i</sup> nanoseconds (exclusive). Recording is one {@link LongAdder} increment,
+ * percentiles are accurate to a factor of two - enough to tell a cached key from a network fetch.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long durationNanos) {
+        long duration = Math.max(durationNanos, 0L);
+        this.buckets[BUCKETS - Long.numberOfLeadingZeros(duration)].increment();
+        this.count.increment();
+        this.totalNanos.add(duration);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getTotalNanos() {
+        return this.totalNanos.sum();
+    }
+
+    public double getMeanNanos() {
+        long n = getCount();
+        return n == 0 ? 0.0 : (double) getTotalNanos() / n;
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 1
+     *
+     * @return the upper bound of the bucket the percentile falls in, 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0.0 || percentile > 1.0) {
+            throw new IllegalArgumentException("percentile must be between 0 and 1!");
+        }
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
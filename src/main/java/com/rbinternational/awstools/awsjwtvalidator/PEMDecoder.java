@@ -0,0 +1,187 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single pass PEM decoder: the Base64 body is decoded straight into the DER buffer while the input is read, armor
+ * lines like <code>-----BEGIN PUBLIC KEY-----</code> and whitespace are skipped. The armor may be on its own line or
+ * joined with the body, as returned by {@link HttpPublicKeyReader}. Every armor line closes the current block, so a
+ * bundle of several PEM blocks is decoded into one DER array per block. Input without armor is a single block.
+ * <p>
+ * Not thread-safe, a decoder is used for a single input.
+ */
+final class PEMDecoder {
+
+    private static final int[] BASE64_VALUES = base64Values();
+
+    private static final int INITIAL_BLOCK_SIZE = 512;
+
+    private final List<byte[]> blocks = new ArrayList<>(1);
+
+    private byte[] der = new byte[INITIAL_BLOCK_SIZE];
+
+    private int length;
+
+    private int bits;
+
+    private int bitCount;
+
+    private boolean padded;
+
+    private boolean inArmor;
+
+    private boolean armorLabel;
+
+    private int dashes;
+
+    /**
+     * @return the DER content of all blocks
+     *
+     * @throws PEMDecodingException if the input is not valid PEM
+     */
+    static List<byte[]> decode(CharSequence pem) {
+        PEMDecoder decoder = new PEMDecoder();
+        for (int i = 0; i < pem.length(); i++) {
+            decoder.update(pem.charAt(i));
+        }
+        return decoder.finish();
+    }
+
+    /**
+     * @return the DER content of all blocks
+     *
+     * @throws PEMDecodingException if the input is not valid PEM
+     */
+    static List<byte[]> decode(byte[] ascii, int offset, int length) {
+        PEMDecoder decoder = new PEMDecoder();
+        decoder.update(ascii, offset, length);
+        return decoder.finish();
+    }
+
+    /**
+     * Reads the stream to its end through the buffer, so the PEM text is never materialized.
+     *
+     * @param inputStream the stream of ASCII compatible PEM
+     * @param buffer the read buffer
+     * @param maxSize the maximum number of bytes to read
+     *
+     * @return the DER content of all blocks
+     *
+     * @throws IOException if the stream can't be read or exceeds the maximum size
+     * @throws PEMDecodingException if the input is not valid PEM
+     */
+    static List<byte[]> decode(InputStream inputStream, byte[] buffer, int maxSize) throws IOException {
+        PEMDecoder decoder = new PEMDecoder();
+        int total = 0;
+        int read;
+        while ((read = inputStream.read(buffer, 0, buffer.length)) != -1) {
+            total += read;
+            if (total > maxSize) {
+                throw new IOException("response exceeds " + maxSize + " bytes");
+            }
+            decoder.update(buffer, 0, read);
+        }
+        return decoder.finish();
+    }
+
+    void update(byte[] ascii, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            update(ascii[i] & 0xff);
+        }
+    }
+
+    void update(int c) {
+        if (this.inArmor) {
+            updateArmor(c);
+        }
+        else if (c == '-') {
+            finishBlock();
+            this.inArmor = true;
+            this.armorLabel = false;
+            this.dashes = 1;
+        }
+        else if (c == '=') {
+            this.padded = true;
+        }
+        else if (!isWhitespace(c)) {
+            int value = c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+            if (value < 0 || this.padded) {
+                throw new PEMDecodingException("PEM contains an invalid character: " + (char) c);
+            }
+            this.bits = (this.bits << 6) | value;
+            this.bitCount += 6;
+            if (this.bitCount >= 8) {
+                this.bitCount -= 8;
+                if (this.length == this.der.length) {
+                    this.der = Arrays.copyOf(this.der, this.der.length * 2);
+                }
+                this.der[this.length++] = (byte) (this.bits >> this.bitCount);
+            }
+        }
+    }
+
+    /**
+     * @return the DER content of all blocks, at least one
+     *
+     * @throws PEMDecodingException if the input is not valid PEM or contains no block
+     */
+    List<byte[]> finish() {
+        finishBlock();
+        if (this.blocks.isEmpty()) {
+            throw new PEMDecodingException("PEM contains no data!");
+        }
+        return this.blocks;
+    }
+
+    /**
+     * The armor ends with the closing dashes after its label, or with the end of the line.
+     */
+    private void updateArmor(int c) {
+        if (c == '\n' || c == '\r') {
+            this.inArmor = false;
+        }
+        else if (c == '-') {
+            this.dashes++;
+            if (this.armorLabel && this.dashes == 5) {
+                this.inArmor = false;
+            }
+        }
+        else {
+            this.armorLabel = true;
+            this.dashes = 0;
+        }
+    }
+
+    private void finishBlock() {
+        if (this.length == 0 && this.bitCount == 0) {
+            return;
+        }
+        if (this.bitCount >= 6) {
+            throw new PEMDecodingException("PEM block is not valid Base64!");
+        }
+        this.blocks.add(Arrays.copyOf(this.der, this.length));
+        this.length = 0;
+        this.bits = 0;
+        this.bitCount = 0;
+        this.padded = false;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0b;
+    }
+
+    private static int[] base64Values() {
+        int[] values = new int[128];
+        Arrays.fill(values, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            values[alphabet.charAt(i)] = i;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,180 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link PublicKeyReader} which keeps the HTTP connections alive. Unlike {@link HttpPublicKeyReader}, the connection is
+ * never disconnected - the response body is read completely and the stream closed, which returns the connection to
+ * the JDK keep-alive cache, so the following fetches from the same host skip the TCP and TLS handshakes.
+ * <p>
+ * Both the connect and the read timeout are set, so a slow endpoint can't block the calling thread indefinitely. The
+ * body is read into a per-thread buffer which is reused between the calls. The response is returned as is, including
+ * the EOL characters. {@link #readPublicKeyDER(URL)} decodes the PEM from that buffer while reading, without building
+ * the response text.
+ */
+public class PooledHttpPublicKeyReader implements PublicKeyReader {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT = 1000; // ms
+
+    public static final int DEFAULT_READ_TIMEOUT = 2000; // ms
+
+    /**
+     * PEM encoded public keys are well below 1 KB, anything above this limit is not a key.
+     */
+    private static final int MAX_RESPONSE_SIZE = 64 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[INITIAL_BUFFER_SIZE]);
+
+    private final Logger logger = LoggerFactory.getLogger(PooledHttpPublicKeyReader.class);
+
+    private final Charset charset;
+
+    private final boolean asciiCompatible;
+
+    private final int connectTimeout;
+
+    private final int readTimeout;
+
+    private final Proxy proxy;
+
+    /**
+     * Uses UTF-8, the default timeouts and no proxy.
+     */
+    public PooledHttpPublicKeyReader() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Uses UTF-8 and no proxy.
+     *
+     * @param connectTimeout the connect timeout in milliseconds
+     * @param readTimeout the read timeout in milliseconds
+     */
+    public PooledHttpPublicKeyReader(int connectTimeout, int readTimeout) {
+        this(StandardCharsets.UTF_8, connectTimeout, readTimeout, null);
+    }
+
+    /**
+     * @param charset character encoding of the response
+     * @param connectTimeout the connect timeout in milliseconds
+     * @param readTimeout the read timeout in milliseconds
+     * @param proxy the proxy to use, <code>null</code> for a direct connection
+     */
+    public PooledHttpPublicKeyReader(Charset charset, int connectTimeout, int readTimeout, Proxy proxy) {
+        if (charset == null) {
+            throw new IllegalArgumentException("charset must be provided!");
+        }
+        if (connectTimeout <= 0 || readTimeout <= 0) {
+            throw new IllegalArgumentException("timeouts must be positive!");
+        }
+        logger.debug("charset: {}, connectTimeout: {}, readTimeout: {}, proxy: {}",
+                charset, connectTimeout, readTimeout, proxy);
+        this.charset = charset;
+        this.asciiCompatible = HttpPublicKeyReader.isAsciiCompatible(charset);
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.proxy = proxy;
+    }
+
+    @Override
+    public String readPublicKey(URL url) throws IOException {
+        return read(url, this::readResponse);
+    }
+
+    /**
+     * Decodes the PEM while the response is read through the per-thread buffer, if the charset is ASCII compatible.
+     */
+    @Override
+    public byte[] readPublicKeyDER(URL url) throws IOException {
+        if (!this.asciiCompatible) {
+            return PublicKeyReader.super.readPublicKeyDER(url);
+        }
+        return read(url, is -> {
+            try (InputStream stream = is) {
+                return PEMDecoder.decode(stream, BUFFER.get(), MAX_RESPONSE_SIZE).get(0);
+            }
+        });
+    }
+
+    private <T> T read(URL url, HttpPublicKeyReader.ResponseReader<T> responseReader) throws IOException {
+        logger.debug("readPublicKey for url: {}", url);
+        ValidationMetricsListener metrics = ValidationMetrics.listener();
+        long start = ValidationMetrics.start(metrics);
+        int code = -1;
+        try {
+            HttpURLConnection connection = this.proxy != null
+                    ? (HttpURLConnection) url.openConnection(this.proxy) : (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(this.connectTimeout);
+            connection.setReadTimeout(this.readTimeout);
+            code = connection.getResponseCode();
+            logger.debug("got http code {}", code);
+            if (code != 200) {
+                String error = "Unknown error reading from the url";
+                InputStream is = connection.getErrorStream();
+                if (is != null) {
+                    error = readResponse(is);
+                }
+                logger.error("Error in readPublicKey, got http code: {}, error message: {}", code, error);
+                throw HttpPublicKeyReader.responseError(code, error);
+            }
+            return responseReader.read(connection.getInputStream());
+        }
+        finally {
+            if (metrics != null) {
+                HttpPublicKeyReader.reportRequest(metrics, code, System.nanoTime() - start);
+            }
+        }
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public Proxy getProxy() {
+        return proxy;
+    }
+
+    /**
+     * Reads the stream to its end and closes it - both are required for the connection to be reused.
+     */
+    private String readResponse(InputStream inputStream) throws IOException {
+        try (InputStream is = inputStream) {
+            byte[] buffer = BUFFER.get();
+            int length = 0;
+            int read;
+            while ((read = is.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+                if (length == buffer.length) {
+                    if (buffer.length >= MAX_RESPONSE_SIZE) {
+                        throw new IOException("response exceeds " + MAX_RESPONSE_SIZE + " bytes");
+                    }
+                    byte[] larger = new byte[Math.min(buffer.length * 2, MAX_RESPONSE_SIZE)];
+                    System.arraycopy(buffer, 0, larger, 0, length);
+                    buffer = larger;
+                    BUFFER.set(buffer);
+                }
+            }
+            return new String(buffer, 0, length, this.charset);
+        }
+    }
+}
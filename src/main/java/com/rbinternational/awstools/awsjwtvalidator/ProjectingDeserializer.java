@@ -0,0 +1,72 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.io.DeserializationException;
+import io.jsonwebtoken.io.Deserializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * jjwt {@link Deserializer} which reads the JSON object with a streaming parser and keeps only the given top-level
+ * names. The values of the other names are skipped with {@link JsonParser#skipChildren()}, so they are neither boxed
+ * nor built into maps and lists. jjwt uses the same deserializer for the header and the payload, so the JWS header
+ * parameters are always kept.
+ */
+class ProjectingDeserializer implements Deserializer<Map<String, ?>> {
+
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final Set<String> ALWAYS_KEPT = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            JwsHeader.ALGORITHM, JwsHeader.KEY_ID, JwsHeader.TYPE, JwsHeader.CONTENT_TYPE, JwsHeader.COMPRESSION_ALGORITHM,
+            "crit", "signer", "client",
+            Claims.EXPIRATION, Claims.NOT_BEFORE, Claims.ISSUED_AT)));
+
+    private final Set<String> keptNames;
+
+    /**
+     * @param projection the claims requested by the caller
+     * @param requiredClaims the names of the claims required by the validation
+     */
+    ProjectingDeserializer(ClaimsProjection projection, Set<String> requiredClaims) {
+        Set<String> names = new HashSet<>(ALWAYS_KEPT);
+        names.addAll(projection.getClaimNames());
+        names.addAll(requiredClaims);
+        this.keptNames = names;
+    }
+
+    @Override
+    public Map<String, ?> deserialize(byte[] bytes) throws DeserializationException {
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(bytes)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new DeserializationException("JSON object expected");
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if (this.keptNames.contains(name)) {
+                    values.put(name, OBJECT_MAPPER.readValue(parser, Object.class));
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+            return values;
+        }
+        catch (IOException e) {
+            throw new DeserializationException("Unable to deserialize: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.Objects;
+
+/**
+ * "Fake" {@link Jwk} holding an already decoded public key, e.g. an ALB public key read as PEM or a key restored from
+ * a {@link KeySnapshotStore}.
+ */
+class PublicKeyJwk extends Jwk {
+
+    private final PublicKey publicKey;
+
+    PublicKeyJwk(String id, String algorithm, PublicKey publicKey) {
+        super(id, "", algorithm != null ? algorithm : "", "", Collections.emptyList(),
+                "", Collections.emptyList(), "", Collections.emptyMap());
+        if (publicKey == null) {
+            throw new IllegalArgumentException("public key must be provided!");
+        }
+        this.publicKey = publicKey;
+    }
+
+    @Override
+    public PublicKey getPublicKey() {
+        return this.publicKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PublicKeyJwk)) return false;
+        PublicKeyJwk publicKeyJwk = (PublicKeyJwk) o;
+        return getId().equals(publicKeyJwk.getId()) && publicKey.equals(publicKeyJwk.publicKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getId(), publicKey);
+    }
+}
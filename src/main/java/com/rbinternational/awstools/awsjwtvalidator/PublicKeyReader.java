@@ -9,4 +9,19 @@ import java.net.URL;
 public interface PublicKeyReader {
 
     String readPublicKey(URL url) throws IOException;
+
+    /**
+     * Reads the public key and decodes its PEM. Implementations may decode the response while it is read, without
+     * building the PEM text.
+     *
+     * @param url the URL of the PEM encoded public key
+     *
+     * @return the DER encoded public key
+     *
+     * @throws IOException if the key can't be read
+     * @throws PEMDecodingException if the response is not valid PEM
+     */
+    default byte[] readPublicKeyDER(URL url) throws IOException {
+        return Utils.decodePEM(readPublicKey(url));
+    }
 }
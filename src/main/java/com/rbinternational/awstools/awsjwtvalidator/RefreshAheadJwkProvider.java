@@ -0,0 +1,349 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.InvalidPublicKeyException;
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Refresh-ahead {@link JwkProvider}. Once a key is fetched from the delegate it is served from a {@link KeyRegistry},
+ * and a scheduled task re-fetches all known keys in the background at a fixed interval, so the request threads never
+ * block on the refresh. If a refresh fails, the previously fetched key is kept and served further.
+ * <p>
+ * An unknown key ID triggers exactly one fetch - concurrent callers for the same key ID wait for that fetch and get
+ * its result or failure. Asynchronous lookups of unknown key IDs fetch on the shared fetch executor of the
+ * {@link CachingJwkProvider}, the scheduler only runs the refresh.
+ * <p>
+ * With a {@link KeySnapshotStore}, the keys of the snapshot are served right from the start and re-fetched once in the
+ * background. Every fetched key is written to the snapshot on the refresh scheduler.
+ * <p>
+ * The scheduled refresh only holds a weak reference to the provider, so a provider which is no longer used stops
+ * refreshing on its next run, even if it was not closed.
+ */
+public class RefreshAheadJwkProvider implements AsyncJwkProvider, Closeable {
+
+    /**
+     * Half of the 24 hours the ALB public keys are cached by default.
+     */
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofHours(12);
+
+    private final Logger logger = LoggerFactory.getLogger(RefreshAheadJwkProvider.class);
+
+    private final JwkProvider delegate;
+
+    private final JwkProvider fetcher;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Executor fetchExecutor;
+
+    private final boolean ownsScheduler;
+
+    private final KeySnapshotStore snapshotStore;
+
+    private final KeyRegistry keys = new KeyRegistry();
+
+    private final ConcurrentMap<String, Instant> fetchTimes = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+
+    private final ScheduledFuture<?> refreshTask;
+
+    /**
+     * Refreshes the keys every {@link #DEFAULT_REFRESH_INTERVAL} on an own daemon thread.
+     *
+     * @param delegate the provider fetching the keys
+     */
+    public RefreshAheadJwkProvider(JwkProvider delegate) {
+        this(delegate, DEFAULT_REFRESH_INTERVAL);
+    }
+
+    /**
+     * Refreshes the keys on an own daemon thread, which is stopped by {@link #close()}.
+     *
+     * @param delegate the provider fetching the keys
+     * @param refreshInterval the interval between the background refreshes
+     */
+    public RefreshAheadJwkProvider(JwkProvider delegate, Duration refreshInterval) {
+        this(delegate, refreshInterval, (KeySnapshotStore) null);
+    }
+
+    /**
+     * Starts with the keys of the snapshot and refreshes the keys on an own daemon thread, which is stopped by
+     * {@link #close()}.
+     *
+     * @param delegate the provider fetching the keys
+     * @param refreshInterval the interval between the background refreshes
+     * @param snapshotStore the snapshot of the keys, <code>null</code> for none
+     */
+    public RefreshAheadJwkProvider(JwkProvider delegate, Duration refreshInterval, KeySnapshotStore snapshotStore) {
+        this(delegate, refreshInterval, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aws-jwt-key-refresh");
+            thread.setDaemon(true);
+            return thread;
+        }), true, snapshotStore);
+    }
+
+    /**
+     * Refreshes the keys on the given scheduler, which is not shut down by {@link #close()}.
+     *
+     * @param delegate the provider fetching the keys
+     * @param refreshInterval the interval between the background refreshes
+     * @param scheduler the scheduler running the refresh
+     */
+    public RefreshAheadJwkProvider(JwkProvider delegate, Duration refreshInterval,
+                                   ScheduledExecutorService scheduler) {
+        this(delegate, refreshInterval, scheduler, false, null);
+    }
+
+    /**
+     * Starts with the keys of the snapshot and refreshes the keys on the given scheduler, which is not shut down by
+     * {@link #close()}.
+     *
+     * @param delegate the provider fetching the keys
+     * @param refreshInterval the interval between the background refreshes
+     * @param scheduler the scheduler running the refresh
+     * @param snapshotStore the snapshot of the keys, <code>null</code> for none
+     */
+    public RefreshAheadJwkProvider(JwkProvider delegate, Duration refreshInterval,
+                                   ScheduledExecutorService scheduler, KeySnapshotStore snapshotStore) {
+        this(delegate, refreshInterval, scheduler, false, snapshotStore);
+    }
+
+    private RefreshAheadJwkProvider(JwkProvider delegate, Duration refreshInterval,
+                                    ScheduledExecutorService scheduler, boolean ownsScheduler,
+                                    KeySnapshotStore snapshotStore) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must be provided!");
+        }
+        if (refreshInterval == null || refreshInterval.isNegative() || refreshInterval.isZero()) {
+            throw new IllegalArgumentException("refreshInterval must be provided and positive!");
+        }
+        if (scheduler == null) {
+            throw new IllegalArgumentException("scheduler must be provided!");
+        }
+        logger.debug("delegate: {}, refreshInterval: {}", delegate, refreshInterval);
+        this.delegate = delegate;
+        this.fetcher = new SingleFlightJwkProvider(this::fetch);
+        this.scheduler = scheduler;
+        this.fetchExecutor = CachingJwkProvider.defaultFetchExecutor();
+        this.ownsScheduler = ownsScheduler;
+        this.snapshotStore = snapshotStore;
+        if (snapshotStore != null && restore(snapshotStore.load())) {
+            this.scheduler.execute(this::refresh);
+        }
+        long intervalMillis = refreshInterval.toMillis();
+        RefreshTask task = new RefreshTask(this);
+        this.refreshTask = this.scheduler.scheduleAtFixedRate(task, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+        task.future = this.refreshTask;
+    }
+
+    @Override
+    public Jwk get(String keyId) throws JwkException {
+        if (keyId == null) {
+            throw new InvalidTokenException(RejectionReason.UNKNOWN_KID, "keyId is missing!");
+        }
+        Jwk jwk = this.keys.get(keyId);
+        ValidationMetricsListener metrics = ValidationMetrics.listener();
+        if (jwk != null) {
+            if (metrics != null) {
+                metrics.keyCacheHit();
+            }
+            return jwk;
+        }
+        if (metrics != null) {
+            metrics.keyCacheMiss();
+        }
+        return this.fetcher.get(keyId);
+    }
+
+    @Override
+    public Jwk getIfPresent(String keyId) {
+        return this.keys.get(keyId);
+    }
+
+    /**
+     * Returns a known key as completed future, an unknown key is fetched on the fetch executor.
+     */
+    @Override
+    public CompletableFuture<Jwk> getAsync(String keyId) {
+        Jwk jwk = getIfPresent(keyId);
+        if (jwk != null) {
+            return CompletableFuture.completedFuture(jwk);
+        }
+        CompletableFuture<Jwk> result = new CompletableFuture<>();
+        this.fetchExecutor.execute(() -> {
+            try {
+                result.complete(get(keyId));
+            }
+            catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Re-fetches all known keys now. Keys which can't be fetched are kept as they are.
+     */
+    public void refresh() {
+        for (String keyId : this.keys.getKeyIds()) {
+            try {
+                this.fetcher.get(keyId);
+            }
+            catch (Exception e) {
+                logger.warn("Refresh of keyId: {} failed, keeping the current key: {}", keyId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the known keys to the snapshot store now.
+     */
+    public void saveSnapshot() {
+        if (this.snapshotStore == null) {
+            return;
+        }
+        List<KeySnapshotStore.Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, Jwk> key : this.keys.getKeys().entrySet()) {
+            try {
+                Instant fetchedAt = this.fetchTimes.getOrDefault(key.getKey(), Instant.now());
+                entries.add(KeySnapshotStore.Entry.of(key.getValue(), fetchedAt));
+            }
+            catch (Exception e) {
+                logger.warn("keyId: {} can't be stored in the snapshot: {}", key.getKey(), e.getMessage());
+            }
+        }
+        try {
+            this.snapshotStore.save(entries);
+        }
+        catch (IOException e) {
+            logger.warn("Key snapshot could not be saved: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the background refresh, and the scheduler if it was created by this provider.
+     */
+    @Override
+    public void close() {
+        this.refreshTask.cancel(false);
+        if (this.ownsScheduler) {
+            this.scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the shared daemon thread refreshing the default ALB key providers, see
+     *         {@link AWSAlbUserClaimsJwkProvider#createProvider()}
+     */
+    static ScheduledExecutorService defaultRefreshScheduler() {
+        return DefaultRefreshScheduler.INSTANCE;
+    }
+
+    /**
+     * Stores the key before the single flight completes, so no caller can miss both the stored key and the fetch.
+     */
+    private Jwk fetch(String keyId) throws JwkException {
+        Jwk jwk = this.keys.put(this.delegate.get(keyId));
+        this.fetchTimes.put(keyId, Instant.now());
+        if (this.snapshotStore != null && this.snapshotPending.compareAndSet(false, true)) {
+            this.scheduler.execute(() -> {
+                this.snapshotPending.set(false);
+                saveSnapshot();
+            });
+        }
+        return jwk;
+    }
+
+    /**
+     * @return <code>true</code> if any key was restored
+     */
+    private boolean restore(List<KeySnapshotStore.Entry> entries) {
+        List<Jwk> restored = new ArrayList<>(entries.size());
+        for (KeySnapshotStore.Entry entry : entries) {
+            this.fetchTimes.put(entry.getKeyId(), entry.getFetchedAt());
+            restored.add(entry.toJwk());
+        }
+        try {
+            this.keys.putAll(restored);
+        }
+        catch (InvalidPublicKeyException e) {
+            // the entries hold decoded keys, which are registered as they are
+            throw new IllegalStateException(e);
+        }
+        return !entries.isEmpty();
+    }
+
+    /**
+     * The periodic refresh, cancelled on its next run once the provider was garbage collected.
+     */
+    private static final class RefreshTask implements Runnable {
+
+        private final WeakReference<RefreshAheadJwkProvider> provider;
+
+        private final ScheduledExecutorService scheduler;
+
+        private final boolean ownsScheduler;
+
+        private volatile ScheduledFuture<?> future;
+
+        RefreshTask(RefreshAheadJwkProvider provider) {
+            this.provider = new WeakReference<>(provider);
+            this.scheduler = provider.scheduler;
+            this.ownsScheduler = provider.ownsScheduler;
+        }
+
+        @Override
+        public void run() {
+            RefreshAheadJwkProvider provider = this.provider.get();
+            if (provider != null) {
+                provider.refresh();
+                return;
+            }
+            if (this.future != null) {
+                this.future.cancel(false);
+            }
+            if (this.ownsScheduler) {
+                this.scheduler.shutdown();
+            }
+        }
+    }
+
+    private static final class DefaultRefreshScheduler {
+
+        private static final ScheduledExecutorService INSTANCE = create();
+
+        private static ScheduledExecutorService create() {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "aws-jwt-key-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+}
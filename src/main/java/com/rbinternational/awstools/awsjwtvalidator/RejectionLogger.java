@@ -0,0 +1,42 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs rejected tokens according to the {@link ValidationLogging} policy: the full exception on DEBUG level, otherwise
+ * a rate-limited WARN message without stack trace.
+ */
+class RejectionLogger {
+
+    private final Logger logger;
+
+    private final AtomicLong nextLogAt = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong suppressed = new AtomicLong();
+
+    RejectionLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+    void log(Throwable rejection) {
+        if (this.logger.isDebugEnabled()) {
+            this.logger.debug("Token rejected: {}", rejection.getMessage(), rejection);
+            return;
+        }
+        if (!this.logger.isWarnEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long next = this.nextLogAt.get();
+        if (now - next >= 0 && this.nextLogAt.compareAndSet(next, now + ValidationLogging.rejectionLogIntervalNanos())) {
+            long count = this.suppressed.getAndSet(0);
+            this.logger.warn("Token rejected: {} ({} rejections suppressed since the last message)",
+                    rejection.getMessage(), count);
+        }
+        else {
+            this.suppressed.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+/**
+ * How the validators report rejected tokens.
+ */
+public enum RejectionMode {
+
+    /**
+     * A new {@link InvalidTokenException} with stack trace, wrapping the exception of the underlying framework.
+     */
+    DETAILED,
+
+    /**
+     * The preallocated {@link InvalidTokenException} of the {@link RejectionReason}, without stack trace and cause -
+     * nothing is allocated for the rejection itself.
+     */
+    LIGHTWEIGHT
+}
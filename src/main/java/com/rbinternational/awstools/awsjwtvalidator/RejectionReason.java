@@ -0,0 +1,80 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.NetworkException;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.InvalidClaimException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+
+import java.io.IOException;
+
+/**
+ * Reasons a token is rejected for, derived from the exception the validation failed with.
+ */
+public enum RejectionReason {
+
+    EXPIRED,
+    NOT_YET_VALID,
+    BAD_SIGNATURE,
+    UNKNOWN_KID,
+    ISSUER_MISMATCH,
+    TOKEN_USE_MISMATCH,
+    INVALID_CLAIM,
+    MALFORMED,
+    UNSUPPORTED,
+    KEY_FETCH_FAILED,
+    OTHER;
+
+    /**
+     * @param failure the exception the validation failed with, possibly wrapped in {@link InvalidTokenException}
+     *
+     * @return the reason of the failure
+     */
+    public static RejectionReason of(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof InvalidTokenException && ((InvalidTokenException) t).getReason() != OTHER) {
+                return ((InvalidTokenException) t).getReason();
+            }
+            if (t instanceof ExpiredJwtException) {
+                return EXPIRED;
+            }
+            if (t instanceof PrematureJwtException) {
+                return NOT_YET_VALID;
+            }
+            if (t instanceof SignatureException) {
+                return BAD_SIGNATURE;
+            }
+            if (t instanceof InvalidClaimException) {
+                String claimName = ((InvalidClaimException) t).getClaimName();
+                if (Claims.ISSUER.equals(claimName)) {
+                    return ISSUER_MISMATCH;
+                }
+                if ("token_use".equals(claimName)) {
+                    return TOKEN_USE_MISMATCH;
+                }
+                return INVALID_CLAIM;
+            }
+            if (t instanceof MalformedJwtException || t instanceof IllegalArgumentException) {
+                return MALFORMED;
+            }
+            if (t instanceof UnsupportedJwtException) {
+                return UNSUPPORTED;
+            }
+            if (t instanceof NetworkException) {
+                return KEY_FETCH_FAILED;
+            }
+            if (t instanceof SigningKeyNotFoundException) {
+                return UNKNOWN_KID;
+            }
+            if (t instanceof JwkException || t instanceof IOException || t instanceof PEMDecodingException) {
+                return KEY_FETCH_FAILED;
+            }
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,168 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ValidationMetricsListener} keeping the metrics in memory, with {@link LongAdder} counters and
+ * {@link LatencyHistogram}s. Suitable for tests, or to be exported periodically by the application.
+ */
+public class SimpleValidationMetrics implements ValidationMetricsListener {
+
+    private final LatencyHistogram validations = new LatencyHistogram();
+
+    private final LatencyHistogram rejections = new LatencyHistogram();
+
+    private final Map<RejectionReason, LongAdder> rejectionReasons = new EnumMap<>(RejectionReason.class);
+
+    private final LongAdder keyCacheHits = new LongAdder();
+
+    private final LongAdder keyCacheMisses = new LongAdder();
+
+    private final LatencyHistogram keyResolutions = new LatencyHistogram();
+
+    private final LongAdder keyResolutionFailures = new LongAdder();
+
+    private final LatencyHistogram keyFetches = new LatencyHistogram();
+
+    private final LongAdder keyFetchFailures = new LongAdder();
+
+    private final LatencyHistogram httpRequests = new LatencyHistogram();
+
+    private final LongAdder httpErrors = new LongAdder();
+
+    public SimpleValidationMetrics() {
+        for (RejectionReason reason : RejectionReason.values()) {
+            this.rejectionReasons.put(reason, new LongAdder());
+        }
+    }
+
+    @Override
+    public void tokenValidated(long durationNanos) {
+        this.validations.record(durationNanos);
+    }
+
+    @Override
+    public void tokenRejected(RejectionReason reason, long durationNanos) {
+        this.rejections.record(durationNanos);
+        this.rejectionReasons.get(reason).increment();
+    }
+
+    @Override
+    public void keyCacheHit() {
+        this.keyCacheHits.increment();
+    }
+
+    @Override
+    public void keyCacheMiss() {
+        this.keyCacheMisses.increment();
+    }
+
+    @Override
+    public void keyResolved(long durationNanos) {
+        this.keyResolutions.record(durationNanos);
+    }
+
+    @Override
+    public void keyResolutionFailed(long durationNanos) {
+        this.keyResolutions.record(durationNanos);
+        this.keyResolutionFailures.increment();
+    }
+
+    @Override
+    public void keyFetched(long durationNanos) {
+        this.keyFetches.record(durationNanos);
+    }
+
+    @Override
+    public void keyFetchFailed(long durationNanos) {
+        this.keyFetches.record(durationNanos);
+        this.keyFetchFailures.increment();
+    }
+
+    @Override
+    public void httpRequestCompleted(int statusCode, long durationNanos) {
+        this.httpRequests.record(durationNanos);
+        if (statusCode != 200) {
+            this.httpErrors.increment();
+        }
+    }
+
+    @Override
+    public void httpRequestFailed(long durationNanos) {
+        this.httpRequests.record(durationNanos);
+        this.httpErrors.increment();
+    }
+
+    /**
+     * @return latencies of the successful validations
+     */
+    public LatencyHistogram getValidations() {
+        return this.validations;
+    }
+
+    /**
+     * @return latencies of the rejected validations
+     */
+    public LatencyHistogram getRejections() {
+        return this.rejections;
+    }
+
+    public long getRejectionCount(RejectionReason reason) {
+        return this.rejectionReasons.get(reason).sum();
+    }
+
+    public long getKeyCacheHitCount() {
+        return this.keyCacheHits.sum();
+    }
+
+    public long getKeyCacheMissCount() {
+        return this.keyCacheMisses.sum();
+    }
+
+    /**
+     * @return the ratio of the key cache hits to all key cache lookups, 0 if there was no lookup
+     */
+    public double getKeyCacheHitRatio() {
+        long hits = getKeyCacheHitCount();
+        long total = hits + getKeyCacheMissCount();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * @return latencies of the signing key resolutions, successful or not
+     */
+    public LatencyHistogram getKeyResolutions() {
+        return this.keyResolutions;
+    }
+
+    public long getKeyResolutionFailureCount() {
+        return this.keyResolutionFailures.sum();
+    }
+
+    /**
+     * @return latencies of the key fetches, successful or not
+     */
+    public LatencyHistogram getKeyFetches() {
+        return this.keyFetches;
+    }
+
+    public long getKeyFetchFailureCount() {
+        return this.keyFetchFailures.sum();
+    }
+
+    /**
+     * @return latencies of the HTTP requests of the key readers, successful or not
+     */
+    public LatencyHistogram getHttpRequests() {
+        return this.httpRequests;
+    }
+
+    /**
+     * @return number of the HTTP requests failed or answered with a status other than 200
+     */
+    public long getHttpErrorCount() {
+        return this.httpErrors.sum();
+    }
+}
@@ -0,0 +1,80 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * {@link JwkProvider} decorator which collapses concurrent requests for the same key ID into one call of the delegate.
+ * The first caller for a key ID does the fetch, all callers arriving while it is running wait for it and get the same
+ * key or the same failure. Nothing is cached - once the fetch completes, the next call fetches again.
+ * <p>
+ * The fetch is a {@link FutureTask} run on the first caller's thread, and no lock or monitor is held during it. The
+ * waiting callers park in {@link FutureTask#get()}, so on virtual threads they release their carrier threads.
+ */
+public class SingleFlightJwkProvider implements JwkProvider {
+
+    private final Logger logger = LoggerFactory.getLogger(SingleFlightJwkProvider.class);
+
+    private final JwkProvider delegate;
+
+    private final ConcurrentMap<String, FutureTask<Jwk>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlightJwkProvider(JwkProvider delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must be provided!");
+        }
+        logger.debug("delegate: {}", delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Jwk get(String keyId) throws JwkException {
+        if (keyId == null) {
+            throw new InvalidTokenException(RejectionReason.UNKNOWN_KID, "keyId is missing!");
+        }
+        FutureTask<Jwk> fetch = new FutureTask<>(() -> this.delegate.get(keyId));
+        FutureTask<Jwk> running = this.inFlight.putIfAbsent(keyId, fetch);
+        if (running != null) {
+            logger.debug("joining running fetch for keyId: {}", keyId);
+            return await(running);
+        }
+        try {
+            fetch.run();
+        }
+        finally {
+            this.inFlight.remove(keyId, fetch);
+        }
+        return await(fetch);
+    }
+
+    private static Jwk await(FutureTask<Jwk> fetch) throws JwkException {
+        try {
+            return fetch.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvalidTokenException(e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JwkException) {
+                throw (JwkException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new InvalidTokenException(cause);
+        }
+    }
+}
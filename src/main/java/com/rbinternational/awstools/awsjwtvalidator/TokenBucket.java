@@ -0,0 +1,58 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Simple token bucket: holds up to <code>capacity</code> permits and refills them continuously at
+ * <code>permitsPerSecond</code>. Only guards in-memory state, the lock is never held while calling out. A
+ * {@link ReentrantLock} instead of a monitor, so a virtual thread waiting for it never pins its carrier thread.
+ */
+class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final double capacity;
+
+    private final double permitsPerNano;
+
+    private final Ticker ticker;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double permits;
+
+    private long lastRefill;
+
+    TokenBucket(int capacity, double permitsPerSecond, Ticker ticker) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1!");
+        }
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive!");
+        }
+        this.capacity = capacity;
+        this.permitsPerNano = permitsPerSecond / NANOS_PER_SECOND;
+        this.ticker = ticker;
+        this.permits = capacity;
+        this.lastRefill = ticker.read();
+    }
+
+    boolean tryAcquire() {
+        this.lock.lock();
+        try {
+            long now = this.ticker.read();
+            this.permits = Math.min(this.capacity, this.permits + (now - this.lastRefill) * this.permitsPerNano);
+            this.lastRefill = now;
+            if (this.permits < 1) {
+                return false;
+            }
+            this.permits--;
+            return true;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Reads single values from the (not yet verified) token header or payload, without parsing the whole token.
+ */
+final class TokenHeaders {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private TokenHeaders() {
+    }
+
+    /**
+     * @param token the compact JWS
+     *
+     * @return the <code>kid</code> header value, or <code>null</code> if it is missing or the header is malformed
+     */
+    static String keyId(String token) {
+        if (token == null) {
+            return null;
+        }
+        int end = token.indexOf('.');
+        if (end <= 0) {
+            return null;
+        }
+        return readString(token.substring(0, end), "kid");
+    }
+
+    /**
+     * @param token the compact JWS
+     *
+     * @return the <code>signer</code> header value of ALB tokens, or <code>null</code> if it is missing or the header
+     *         is malformed
+     */
+    static String signer(String token) {
+        if (token == null) {
+            return null;
+        }
+        int end = token.indexOf('.');
+        if (end <= 0) {
+            return null;
+        }
+        return readString(token.substring(0, end), AWSAlbMultiRegionSigningKeyResolver.SIGNER_HEADER);
+    }
+
+    /**
+     * @param token the compact JWS
+     *
+     * @return the <code>iss</code> claim, or <code>null</code> if it is missing or the payload is malformed
+     */
+    static String issuer(String token) {
+        if (token == null) {
+            return null;
+        }
+        int start = token.indexOf('.') + 1;
+        int end = start > 0 ? token.indexOf('.', start) : -1;
+        if (end <= start) {
+            return null;
+        }
+        return readString(token.substring(start, end), "iss");
+    }
+
+    private static String readString(String segment, String field) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(segment);
+            try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if (field.equals(name)) {
+                        return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    }
+                    parser.skipChildren();
+                }
+                return null;
+            }
+        }
+        catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+}
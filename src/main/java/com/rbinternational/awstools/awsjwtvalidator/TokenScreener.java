@@ -0,0 +1,544 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.jsonwebtoken.ClaimJwtException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.IncorrectClaimException;
+import io.jsonwebtoken.InvalidClaimException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.MissingClaimException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Cheap structural pre-check of a token, run before any key lookup or signature verification. The token is scanned
+ * once for its three segments and the allowed characters, the length is limited, the <code>alg</code> header must be
+ * one of the allowed algorithms (if restricted), and the <code>exp</code>, <code>nbf</code> and (optionally)
+ * <code>iss</code> claims are read from the payload with a streaming parser. The <code>kid</code> header is read in
+ * the same pass, see {@link #inspect(String)}. Garbage, oversized, expired and wrong-issuer tokens are rejected
+ * without any cryptography.
+ * <p>
+ * {@link #screen(String)} reports failures with the same jjwt exceptions the full validation would throw, a disallowed
+ * algorithm as {@link SignatureException}. The claims attached to an {@link ExpiredJwtException},
+ * {@link PrematureJwtException} or {@link InvalidClaimException} contain only the screened claims and the subject.
+ * {@link #check(String)} returns the {@link RejectionReason} instead and creates no exception at all.
+ */
+public class TokenScreener {
+
+    /**
+     * ALB user claims and Cognito access tokens are a few KB at most.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 16 * 1024;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * The value of each Base64URL character, -1 for all other ASCII characters. The padding character is allowed by
+     * the scan, but has no value.
+     */
+    private static final int[] BASE64_URL_VALUES = base64UrlValues();
+
+    private final int maxLength;
+
+    private final Set<String> allowedAlgorithms;
+
+    private final String expectedIssuer;
+
+    /**
+     * @param maxLength the maximum length of a token
+     * @param allowedAlgorithms the allowed values of the <code>alg</code> header, empty to allow any algorithm
+     * @param expectedIssuer the required value of the <code>iss</code> claim, <code>null</code> to not check it
+     */
+    public TokenScreener(int maxLength, Set<SignatureAlgorithm> allowedAlgorithms, String expectedIssuer) {
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("maxLength must be positive!");
+        }
+        if (allowedAlgorithms == null) {
+            throw new IllegalArgumentException("allowedAlgorithms must be provided!");
+        }
+        Set<String> algorithms = new LinkedHashSet<>();
+        for (SignatureAlgorithm algorithm : allowedAlgorithms) {
+            algorithms.add(algorithm.getValue());
+        }
+        this.maxLength = maxLength;
+        this.allowedAlgorithms = Collections.unmodifiableSet(algorithms);
+        this.expectedIssuer = expectedIssuer;
+    }
+
+    /**
+     * Not used by default, as it rejects tokens signed with other algorithms than the ALB does.
+     *
+     * @return screener for the ALB user claims tokens, signed with ES256
+     */
+    public static TokenScreener forUserClaims() {
+        return new TokenScreener(DEFAULT_MAX_LENGTH, EnumSet.of(SignatureAlgorithm.ES256), null);
+    }
+
+    /**
+     * @return screener checking the structure, the length and the time claims of a token signed with any algorithm
+     */
+    public static TokenScreener forAnyAlgorithm() {
+        return new TokenScreener(DEFAULT_MAX_LENGTH, EnumSet.noneOf(SignatureAlgorithm.class), null);
+    }
+
+    /**
+     * @param issuer the URL of the Cognito user pool
+     *
+     * @return screener for the Cognito access tokens, signed with RS256 and issued by the user pool
+     */
+    public static TokenScreener forAccessTokens(String issuer) {
+        return new TokenScreener(DEFAULT_MAX_LENGTH, EnumSet.of(SignatureAlgorithm.RS256), issuer);
+    }
+
+    /**
+     * @param token the compact JWS
+     *
+     * @throws JwtException if the token can't be valid
+     * @throws IllegalArgumentException if the token is <code>null</code> or empty
+     */
+    public void screen(String token) throws JwtException {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("JWT String argument cannot be null or empty.");
+        }
+        screen(token, true, null);
+    }
+
+    /**
+     * Screens the token in place, e.g. a header value as received from the network.
+     *
+     * @param token the bytes containing the compact JWS
+     * @param offset the index of the first byte of the token
+     * @param length the number of bytes of the token
+     *
+     * @throws JwtException if the token can't be valid
+     * @throws IllegalArgumentException if the token is <code>null</code> or empty
+     */
+    public void screen(byte[] token, int offset, int length) throws JwtException {
+        if (token == null || length == 0) {
+            throw new IllegalArgumentException("JWT String argument cannot be null or empty.");
+        }
+        checkBounds(token, offset, length);
+        screenAscii(token, offset, length, true, null);
+    }
+
+    /**
+     * Same as {@link #screen(String)}, but reports a rejection by its reason instead of an exception - no exception
+     * and no stack trace is created for a rejected token, see {@link RejectionMode#LIGHTWEIGHT}.
+     *
+     * @param token the compact JWS
+     *
+     * @return the reason the token is rejected for, <code>null</code> if it passes
+     */
+    public RejectionReason check(String token) {
+        if (token == null || token.isEmpty()) {
+            return RejectionReason.MALFORMED;
+        }
+        return screen(token, false, null);
+    }
+
+    /**
+     * Same as {@link #screen(byte[], int, int)}, but reports a rejection by its reason instead of an exception.
+     *
+     * @param token the bytes containing the compact JWS
+     * @param offset the index of the first byte of the token
+     * @param length the number of bytes of the token
+     *
+     * @return the reason the token is rejected for, <code>null</code> if it passes
+     *
+     * @throws IllegalArgumentException if offset and length are not within the bytes
+     */
+    public RejectionReason check(byte[] token, int offset, int length) {
+        if (token == null || length == 0) {
+            return RejectionReason.MALFORMED;
+        }
+        checkBounds(token, offset, length);
+        return screenAscii(token, offset, length, false, null);
+    }
+
+    /**
+     * Same as {@link #check(String)}, and returns the <code>kid</code> header read in the same pass, so the key can be
+     * looked up without decoding the header again.
+     *
+     * @param token the compact JWS
+     *
+     * @return the reason the token is rejected for and its key ID, as far as it was read
+     */
+    Screening inspect(String token) {
+        Screening screening = new Screening();
+        screening.reason = token == null || token.isEmpty() ? RejectionReason.MALFORMED
+                : screen(token, false, screening);
+        return screening;
+    }
+
+    private RejectionReason screen(String token, boolean detailed, Screening screening) {
+        if (token.length() > this.maxLength) {
+            return tooLong(detailed);
+        }
+        byte[] ascii = token.getBytes(StandardCharsets.ISO_8859_1);
+        return screenAscii(ascii, 0, ascii.length, detailed, screening);
+    }
+
+    private static void checkBounds(byte[] token, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > token.length - length) {
+            throw new IllegalArgumentException("offset and length must be within the token bytes!");
+        }
+    }
+
+    /**
+     * The single pass over the token. With <code>detailed</code> a rejection is thrown as jjwt exception, otherwise
+     * only its reason is returned.
+     *
+     * @param screening receives the key ID, <code>null</code> if not needed
+     *
+     * @return the reason the token is rejected for, <code>null</code> if it passes
+     */
+    private RejectionReason screenAscii(byte[] token, int offset, int length, boolean detailed,
+                                        Screening screening) {
+        if (length > this.maxLength) {
+            return tooLong(detailed);
+        }
+        int end = offset + length;
+        int headerEnd = -1;
+        int payloadEnd = -1;
+        for (int i = offset; i < end; i++) {
+            byte b = token[i];
+            if (b == '.') {
+                if (headerEnd < 0) {
+                    headerEnd = i;
+                }
+                else if (payloadEnd < 0) {
+                    payloadEnd = i;
+                }
+                else {
+                    return malformed(detailed, "JWT strings must contain exactly 2 period characters.");
+                }
+            }
+            else if (b != '=' && (b < 0 || BASE64_URL_VALUES[b] < 0)) {
+                if (detailed) {
+                    throw new MalformedJwtException("JWT contains an invalid character at index " + (i - offset)
+                            + ".");
+                }
+                return RejectionReason.MALFORMED;
+            }
+        }
+        if (payloadEnd < 0) {
+            return malformed(detailed, "JWT strings must contain exactly 2 period characters.");
+        }
+        if (headerEnd == offset || payloadEnd == headerEnd + 1) {
+            return malformed(detailed, "JWT header and payload must not be empty.");
+        }
+        if (payloadEnd == end - 1) {
+            if (detailed) {
+                throw new UnsupportedJwtException("Unsigned Claims JWTs are not supported.");
+            }
+            return RejectionReason.UNSUPPORTED;
+        }
+        // sized to the larger segment and confined to this call, so no buffer is kept per (virtual) thread
+        byte[] buffer = new byte[decodedLength(Math.max(headerEnd - offset, payloadEnd - headerEnd - 1))];
+        int headerLength = decode(token, offset, headerEnd, buffer);
+        if (headerLength < 0) {
+            return malformed(detailed, "JWT segment is not valid Base64URL.");
+        }
+        HeaderValues header = readHeader(buffer, headerLength, detailed, screening != null);
+        if (header == null) {
+            return RejectionReason.MALFORMED;
+        }
+        if (screening != null) {
+            screening.keyId = header.keyId;
+        }
+        String algorithm = header.algorithm;
+        if (!this.allowedAlgorithms.isEmpty() && !this.allowedAlgorithms.contains(algorithm)) {
+            if (detailed) {
+                throw new SignatureException("JWT signature algorithm " + algorithm + " is not allowed.");
+            }
+            return RejectionReason.BAD_SIGNATURE;
+        }
+        int payloadLength = decode(token, headerEnd + 1, payloadEnd, buffer);
+        if (payloadLength < 0) {
+            return malformed(detailed, "JWT segment is not valid Base64URL.");
+        }
+        return checkClaims(buffer, payloadLength, detailed);
+    }
+
+    public int getMaxLength() {
+        return this.maxLength;
+    }
+
+    public Set<String> getAllowedAlgorithms() {
+        return this.allowedAlgorithms;
+    }
+
+    public String getExpectedIssuer() {
+        return this.expectedIssuer;
+    }
+
+    private RejectionReason checkClaims(byte[] payload, int length, boolean detailed) {
+        Claims claims = readClaims(payload, length, detailed);
+        if (claims == null) {
+            return RejectionReason.MALFORMED;
+        }
+        long now = System.currentTimeMillis();
+        Date expiration = claims.getExpiration();
+        if (expiration != null && now > expiration.getTime()) {
+            if (detailed) {
+                throw new ExpiredJwtException(null, claims, "JWT expired at " + expiration.toInstant()
+                        + ". Current time: " + new Date(now).toInstant() + ".");
+            }
+            return RejectionReason.EXPIRED;
+        }
+        Date notBefore = claims.getNotBefore();
+        if (notBefore != null && now < notBefore.getTime()) {
+            if (detailed) {
+                throw new PrematureJwtException(null, claims, "JWT must not be accepted before "
+                        + notBefore.toInstant() + ". Current time: " + new Date(now).toInstant() + ".");
+            }
+            return RejectionReason.NOT_YET_VALID;
+        }
+        if (this.expectedIssuer == null || this.expectedIssuer.equals(claims.getIssuer())) {
+            return null;
+        }
+        if (!detailed) {
+            return RejectionReason.ISSUER_MISMATCH;
+        }
+        String issuer = claims.getIssuer();
+        InvalidClaimException exception;
+        if (issuer == null) {
+            exception = new MissingClaimException(null, claims, String.format(
+                    ClaimJwtException.MISSING_EXPECTED_CLAIM_MESSAGE_TEMPLATE, Claims.ISSUER, this.expectedIssuer));
+        }
+        else {
+            exception = new IncorrectClaimException(null, claims, String.format(
+                    ClaimJwtException.INCORRECT_EXPECTED_CLAIM_MESSAGE_TEMPLATE, Claims.ISSUER, this.expectedIssuer,
+                    issuer));
+        }
+        exception.setClaimName(Claims.ISSUER);
+        exception.setClaimValue(this.expectedIssuer);
+        throw exception;
+    }
+
+    private RejectionReason tooLong(boolean detailed) {
+        if (detailed) {
+            throw new MalformedJwtException("JWT exceeds the maximum length of " + this.maxLength + " characters.");
+        }
+        return RejectionReason.MALFORMED;
+    }
+
+    private static RejectionReason malformed(boolean detailed, String message) {
+        if (detailed) {
+            throw new MalformedJwtException(message);
+        }
+        return RejectionReason.MALFORMED;
+    }
+
+    /**
+     * @return the maximum number of bytes a Base64URL segment of the given length decodes to
+     */
+    private static int decodedLength(int segmentLength) {
+        return segmentLength * 3 / 4;
+    }
+
+    /**
+     * Decodes a Base64URL segment (with or without padding) into the buffer.
+     *
+     * @return the number of decoded bytes, -1 if the segment is not valid Base64URL
+     */
+    private static int decode(byte[] ascii, int from, int to, byte[] buffer) {
+        while (to > from && ascii[to - 1] == '=') {
+            to--;
+        }
+        int length = to - from;
+        if (length % 4 == 1) {
+            return -1;
+        }
+        int bits = 0;
+        int bitCount = 0;
+        int decoded = 0;
+        for (int i = from; i < to; i++) {
+            int value = BASE64_URL_VALUES[ascii[i]];
+            if (value < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                buffer[decoded++] = (byte) (bits >> bitCount);
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Reads the <code>alg</code> and - if needed - the <code>kid</code> header.
+     *
+     * @return the header values, <code>null</code> if the header is not a JSON object
+     */
+    private static HeaderValues readHeader(byte[] header, int length, boolean detailed, boolean readKeyId) {
+        try (JsonParser parser = createParser(header, length, detailed)) {
+            if (parser == null) {
+                return null;
+            }
+            HeaderValues values = new HeaderValues();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("alg".equals(name) && value == JsonToken.VALUE_STRING) {
+                    values.algorithm = parser.getText();
+                    if (!readKeyId) {
+                        return values;
+                    }
+                }
+                else if (readKeyId && "kid".equals(name) && value == JsonToken.VALUE_STRING) {
+                    values.keyId = parser.getText();
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+            return values;
+        }
+        catch (IOException e) {
+            if (detailed) {
+                throw new MalformedJwtException("Unable to read JWT header.", e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads the top-level <code>exp</code>, <code>nbf</code>, <code>iss</code> and <code>sub</code> claims, all
+     * other values are skipped without being materialized.
+     *
+     * @return the claims, <code>null</code> if the payload is not a JSON object
+     */
+    private static Claims readClaims(byte[] payload, int length, boolean detailed) {
+        Claims claims = Jwts.claims();
+        try (JsonParser parser = createParser(payload, length, detailed)) {
+            if (parser == null) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ((Claims.EXPIRATION.equals(name) || Claims.NOT_BEFORE.equals(name)) && value.isNumeric()) {
+                    claims.put(name, new Date(parser.getLongValue() * 1000));
+                }
+                else if ((Claims.ISSUER.equals(name) || Claims.SUBJECT.equals(name))
+                        && value == JsonToken.VALUE_STRING) {
+                    claims.put(name, parser.getText());
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+            return claims;
+        }
+        catch (IOException e) {
+            if (detailed) {
+                throw new MalformedJwtException("Unable to read JWT payload.", e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Checks the first character before creating the parser, so a segment of random bytes is rejected without the
+     * exception of the JSON parser.
+     *
+     * @return the parser positioned on the start of the object, <code>null</code> if the segment is not an object
+     */
+    private static JsonParser createParser(byte[] json, int length, boolean detailed) throws IOException {
+        int first = 0;
+        while (first < length && (json[first] == ' ' || json[first] == '\t' || json[first] == '\r'
+                || json[first] == '\n')) {
+            first++;
+        }
+        if (first == length || json[first] != '{') {
+            return notAnObject(detailed);
+        }
+        JsonParser parser = JSON_FACTORY.createParser(json, 0, length);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            return notAnObject(detailed);
+        }
+        return parser;
+    }
+
+    private static JsonParser notAnObject(boolean detailed) {
+        if (detailed) {
+            throw new MalformedJwtException("JWT segment is not a JSON object.");
+        }
+        return null;
+    }
+
+    private static int[] base64UrlValues() {
+        int[] values = new int[128];
+        Arrays.fill(values, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            values[alphabet.charAt(i)] = i;
+        }
+        return values;
+    }
+
+    /**
+     * The header values read by the screener, <code>null</code> if missing.
+     */
+    private static final class HeaderValues {
+
+        private String algorithm;
+
+        private String keyId;
+    }
+
+    /**
+     * Outcome of {@link #inspect(String)}.
+     */
+    static final class Screening {
+
+        private RejectionReason reason;
+
+        private String keyId;
+
+        /**
+         * @param keyId the key ID read without screening
+         *
+         * @return a passed screening, for validators without screener
+         */
+        static Screening unscreened(String keyId) {
+            Screening screening = new Screening();
+            screening.keyId = keyId;
+            return screening;
+        }
+
+        /**
+         * @return the reason the token is rejected for, <code>null</code> if it passed
+         */
+        RejectionReason getReason() {
+            return this.reason;
+        }
+
+        /**
+         * @return the <code>kid</code> header, <code>null</code> if it is missing or was not read
+         */
+        String getKeyId() {
+            return this.keyId;
+        }
+    }
+}
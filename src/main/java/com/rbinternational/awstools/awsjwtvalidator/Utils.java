@@ -3,17 +3,26 @@ package com.rbinternational.awstools.awsjwtvalidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.KeyFactory;
 import java.security.PublicKey;
 import java.security.spec.X509EncodedKeySpec;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Utils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Utils.class);
 
+    /**
+     * DER encoded OIDs <code>1.2.840.10045.2.1</code> (id-ecPublicKey) and <code>1.2.840.113549.1.1.1</code>
+     * (rsaEncryption).
+     */
+    private static final byte[] EC_OID = {0x06, 0x07, 0x2a, (byte) 0x86, 0x48, (byte) 0xce, 0x3d, 0x02, 0x01};
+
+    private static final byte[] RSA_OID = {0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01,
+            0x01, 0x01};
+
     /**
      * Converts a public key in PEM format to {@link PublicKey}.
      *
@@ -25,14 +34,13 @@ public class Utils {
      * @throws PEMDecodingException if the file is invalid PEM format
      */
     public static Key publicKeyFromPEM(String pem, String algorithm) throws PEMDecodingException {
-        LOGGER.debug("convert PEM: {}, with algorithm: {}", pem, algorithm);
         try {
-            String normalizedPEM = normalizePEM(pem);
-            LOGGER.debug("normalized PEM: {}", normalizedPEM);
-            byte[] encoded = Base64.getDecoder().decode(normalizedPEM.getBytes(StandardCharsets.ISO_8859_1));
-            KeyFactory keyFactory = KeyFactory.getInstance(algorithm);
-            PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(encoded));
-            LOGGER.debug("public key {}, for PEM: {}", publicKey, pem);
+            PublicKey publicKey = KeyFactory.getInstance(algorithm).generatePublic(
+                    new X509EncodedKeySpec(decodePEM(pem)));
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("converted PEM of {} chars with algorithm: {} to public key: {}",
+                        pem.length(), algorithm, publicKey);
+            }
             return publicKey;
         }
         catch (Exception e) {
@@ -41,10 +49,94 @@ public class Utils {
         }
     }
 
-    private static String normalizePEM(String pem) {
-        pem = pem.replace("-----BEGIN PUBLIC KEY-----", "");
-        pem = pem.replace("-----END PUBLIC KEY-----", "");
-        pem = pem.replaceAll("\\s+", ""); // remove all whitespace chars
-        return pem;
+    /**
+     * Converts all public keys of a PEM bundle, each with the algorithm given in its encoding - so EC and RSA keys can
+     * be mixed.
+     *
+     * @param pem one or more public keys in PEM format
+     *
+     * @return the converted keys, in the order of the bundle
+     *
+     * @throws PEMDecodingException if the bundle is invalid PEM format or contains other than EC and RSA keys
+     */
+    public static List<PublicKey> publicKeysFromPEM(CharSequence pem) throws PEMDecodingException {
+        if (pem == null) {
+            throw new PEMDecodingException("pem must be provided!");
+        }
+        List<byte[]> blocks = PEMDecoder.decode(pem);
+        List<PublicKey> publicKeys = new ArrayList<>(blocks.size());
+        for (byte[] der : blocks) {
+            publicKeys.add(publicKeyFromDER(der, keyAlgorithm(der)));
+        }
+        LOGGER.debug("converted {} public keys from PEM of {} chars", publicKeys.size(), pem.length());
+        return publicKeys;
+    }
+
+    /**
+     * Converts an X.509 (<code>SubjectPublicKeyInfo</code>) encoded public key to {@link PublicKey}.
+     *
+     * @param der the DER encoded public key
+     * @param algorithm the algorithm, i.e. EC or RSA
+     *
+     * @return the converted {@link PublicKey}
+     *
+     * @throws PEMDecodingException if the key can't be converted
+     */
+    public static PublicKey publicKeyFromDER(byte[] der, String algorithm) throws PEMDecodingException {
+        try {
+            return KeyFactory.getInstance(algorithm).generatePublic(new X509EncodedKeySpec(der));
+        }
+        catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+            throw new PEMDecodingException(e);
+        }
+    }
+
+    /**
+     * Decodes the first block of a PEM in a single pass, skipping the armor lines and all whitespace.
+     *
+     * @param pem the PEM, with or without armor
+     *
+     * @return the DER content of the first block
+     *
+     * @throws PEMDecodingException if the PEM is not valid
+     */
+    public static byte[] decodePEM(CharSequence pem) throws PEMDecodingException {
+        if (pem == null) {
+            throw new PEMDecodingException("pem must be provided!");
+        }
+        return PEMDecoder.decode(pem).get(0);
+    }
+
+    /**
+     * @param der the DER encoded public key
+     *
+     * @return <code>EC</code> or <code>RSA</code>, as given by the algorithm identifier of the key
+     *
+     * @throws PEMDecodingException if the key is neither EC nor RSA
+     */
+    public static String keyAlgorithm(byte[] der) throws PEMDecodingException {
+        // the algorithm identifier is the first OID of the SubjectPublicKeyInfo, within its first bytes
+        int end = Math.min(der.length, 32);
+        if (indexOf(der, end, EC_OID) >= 0) {
+            return "EC";
+        }
+        if (indexOf(der, end, RSA_OID) >= 0) {
+            return "RSA";
+        }
+        throw new PEMDecodingException("public key is neither EC nor RSA!");
+    }
+
+    private static int indexOf(byte[] bytes, int end, byte[] part) {
+        for (int i = 0; i <= end - part.length; i++) {
+            int j = 0;
+            while (j < part.length && bytes[i + j] == part[j]) {
+                j++;
+            }
+            if (j == part.length) {
+                return i;
+            }
+        }
+        return -1;
     }
 }
@@ -0,0 +1,73 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import java.time.Duration;
+
+/**
+ * Logging policy of the library. Tokens are bearer credentials and their claims are personal data, so both are
+ * redacted in the log output by default - only the start of the token header and the token length are logged.
+ * Rejected tokens are logged on WARN level without stack trace, at most once per {@link #getRejectionLogInterval()}
+ * per logger, together with the number of rejections suppressed since the last message. The full exceptions are
+ * logged on DEBUG level.
+ */
+public final class ValidationLogging {
+
+    public static final Duration DEFAULT_REJECTION_LOG_INTERVAL = Duration.ofSeconds(10);
+
+    private static final int VISIBLE_TOKEN_PREFIX = 12;
+
+    private static volatile boolean redactTokens = true;
+
+    private static volatile long rejectionLogIntervalNanos = DEFAULT_REJECTION_LOG_INTERVAL.toNanos();
+
+    private ValidationLogging() {
+    }
+
+    /**
+     * @param redact <code>false</code> to log the tokens and claims in full, e.g. for local debugging
+     */
+    public static void setRedactTokens(boolean redact) {
+        redactTokens = redact;
+    }
+
+    public static boolean isRedactTokens() {
+        return redactTokens;
+    }
+
+    /**
+     * @param interval the minimum time between two logged rejections, zero to log every rejection
+     */
+    public static void setRejectionLogInterval(Duration interval) {
+        if (interval == null || interval.isNegative()) {
+            throw new IllegalArgumentException("interval must be provided and not negative!");
+        }
+        rejectionLogIntervalNanos = interval.toNanos();
+    }
+
+    public static Duration getRejectionLogInterval() {
+        return Duration.ofNanos(rejectionLogIntervalNanos);
+    }
+
+    static long rejectionLogIntervalNanos() {
+        return rejectionLogIntervalNanos;
+    }
+
+    /**
+     * @return the token as is, or redacted to the start of its header and its length
+     */
+    static String redact(String token) {
+        if (token == null || !redactTokens) {
+            return token;
+        }
+        if (token.length() <= VISIBLE_TOKEN_PREFIX) {
+            return "[" + token.length() + " chars]";
+        }
+        return token.substring(0, VISIBLE_TOKEN_PREFIX) + "...[" + token.length() + " chars]";
+    }
+
+    /**
+     * @return the claims as they are, or a placeholder
+     */
+    static Object redactClaims(Object sensitive) {
+        return sensitive == null || !redactTokens ? sensitive : "[redacted]";
+    }
+}
@@ -0,0 +1,46 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+/**
+ * Holds the {@link ValidationMetricsListener} all validators, resolvers, key providers and key readers report to. As
+ * long as no listener is registered, the instrumented code only reads one volatile field - not even the clock is read.
+ */
+public final class ValidationMetrics {
+
+    private static volatile ValidationMetricsListener listener;
+
+    private ValidationMetrics() {
+    }
+
+    /**
+     * Registers the listener, replacing the current one.
+     *
+     * @param metricsListener the listener to report to
+     */
+    public static void register(ValidationMetricsListener metricsListener) {
+        if (metricsListener == null) {
+            throw new IllegalArgumentException("metricsListener must be provided!");
+        }
+        listener = metricsListener;
+    }
+
+    /**
+     * Removes the current listener, the metrics are no longer recorded.
+     */
+    public static void unregister() {
+        listener = null;
+    }
+
+    /**
+     * @return the registered listener, <code>null</code> if no listener is registered
+     */
+    public static ValidationMetricsListener listener() {
+        return listener;
+    }
+
+    /**
+     * @return the current time to measure a duration from, 0 if no listener is registered
+     */
+    static long start(ValidationMetricsListener metricsListener) {
+        return metricsListener != null ? System.nanoTime() : 0L;
+    }
+}
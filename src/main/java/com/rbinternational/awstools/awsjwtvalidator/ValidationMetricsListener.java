@@ -0,0 +1,71 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+/**
+ * Receives the metrics of the token validation. All methods are no-ops by default, so implementations override only
+ * what they record. The methods are called on the validating (or fetching) threads and must be fast and thread-safe.
+ * Durations are in nanoseconds.
+ *
+ * @see ValidationMetrics#register(ValidationMetricsListener)
+ */
+public interface ValidationMetricsListener {
+
+    /**
+     * A token was validated successfully.
+     */
+    default void tokenValidated(long durationNanos) {
+    }
+
+    /**
+     * A token was rejected.
+     */
+    default void tokenRejected(RejectionReason reason, long durationNanos) {
+    }
+
+    /**
+     * A signing key was served from the key cache.
+     */
+    default void keyCacheHit() {
+    }
+
+    /**
+     * A signing key was not in the key cache and has to be fetched.
+     */
+    default void keyCacheMiss() {
+    }
+
+    /**
+     * A signing key resolver provided the key for a token, including a possible fetch.
+     */
+    default void keyResolved(long durationNanos) {
+    }
+
+    /**
+     * A signing key resolver could not provide the key for a token.
+     */
+    default void keyResolutionFailed(long durationNanos) {
+    }
+
+    /**
+     * A public key was fetched from the key endpoint and converted.
+     */
+    default void keyFetched(long durationNanos) {
+    }
+
+    /**
+     * A public key could not be fetched from the key endpoint or converted.
+     */
+    default void keyFetchFailed(long durationNanos) {
+    }
+
+    /**
+     * A public key reader got an HTTP response.
+     */
+    default void httpRequestCompleted(int statusCode, long durationNanos) {
+    }
+
+    /**
+     * A public key reader got no HTTP response, e.g. because of a timeout.
+     */
+    default void httpRequestFailed(long durationNanos) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+
+/**
+ * Outcome of the validation of a single token: either the claims of the valid token, or the exception describing
+ * why the token is invalid.
+ */
+public final class ValidationResult {
+
+    private final Jws<Claims> claimsJws;
+
+    private final InvalidTokenException exception;
+
+    private ValidationResult(Jws<Claims> claimsJws, InvalidTokenException exception) {
+        this.claimsJws = claimsJws;
+        this.exception = exception;
+    }
+
+    public static ValidationResult valid(Jws<Claims> claimsJws) {
+        if (claimsJws == null) {
+            throw new IllegalArgumentException("claimsJws must be provided!");
+        }
+        return new ValidationResult(claimsJws, null);
+    }
+
+    public static ValidationResult invalid(InvalidTokenException exception) {
+        if (exception == null) {
+            throw new IllegalArgumentException("exception must be provided!");
+        }
+        return new ValidationResult(null, exception);
+    }
+
+    public boolean isValid() {
+        return this.exception == null;
+    }
+
+    /**
+     * @return the claims of the valid token, <code>null</code> if the token is invalid
+     */
+    public Jws<Claims> getClaimsJws() {
+        return this.claimsJws;
+    }
+
+    /**
+     * @return the exception the token was rejected with - in {@link RejectionMode#LIGHTWEIGHT} the preallocated one of
+     * the reason, without stack trace and cause - <code>null</code> if the token is valid
+     */
+    public InvalidTokenException getException() {
+        return this.exception;
+    }
+
+    /**
+     * @return the reason the token is invalid, <code>null</code> if the token is valid
+     */
+    public RejectionReason getReason() {
+        return this.exception != null ? this.exception.getReason() : null;
+    }
+
+    /**
+     * @return the claims of the valid token
+     *
+     * @throws InvalidTokenException if the token is invalid
+     */
+    public Jws<Claims> getOrThrow() throws InvalidTokenException {
+        if (this.exception != null) {
+            throw this.exception;
+        }
+        return this.claimsJws;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "ValidationResult{valid}" : "ValidationResult{invalid: " + this.exception.getMessage() + "}";
+    }
+}
@@ -0,0 +1,94 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.JwkProvider;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AWSAlbAccessTokenValidatorRegistryTest {
+
+    private static final String TENANT_A = "https://cognito-idp.eu-central-1.amazonaws.com/eu-central-1_tenantA";
+
+    private static final String TENANT_B = "https://cognito-idp.eu-west-1.amazonaws.com/eu-west-1_tenantB";
+
+    private final KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+
+    private final AtomicInteger createdProviders = new AtomicInteger();
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private AWSAlbAccessTokenValidatorRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        Function<String, JwkProvider> providerFactory = issuer -> {
+            this.createdProviders.incrementAndGet();
+            return keyId -> new PublicKeyJwk(keyId, "RS256", this.keyPair.getPublic());
+        };
+        List<String> allowed = Arrays.asList(TENANT_A, TENANT_B);
+        this.registry = new AWSAlbAccessTokenValidatorRegistry(allowed, 10, Duration.ofMinutes(30),
+                providerFactory, this.nanos::get);
+    }
+
+    @Test
+    public void testTokensAreRoutedByIssuer() {
+        assertEquals("a", this.registry.validateToken(createToken(TENANT_A, "a")).getBody().getSubject());
+        assertEquals("b", this.registry.validateToken(createToken(TENANT_B, "b")).getBody().getSubject());
+        assertEquals("a", this.registry.validateToken(createToken(TENANT_A, "a")).getBody().getSubject());
+        assertEquals(2, this.createdProviders.get());
+        assertEquals(TENANT_A, this.registry.getValidatorForIssuer(TENANT_A).getUrl());
+    }
+
+    @Test
+    public void testIssuerOutsideAllowListIsRejected() {
+        String token = createToken("https://cognito-idp.eu-central-1.amazonaws.com/eu-central-1_other", "x");
+        InvalidTokenException exception
+                = assertThrows(InvalidTokenException.class, () -> this.registry.validateToken(token));
+        assertEquals(RejectionReason.ISSUER_MISMATCH, exception.getReason());
+        assertEquals(RejectionReason.ISSUER_MISMATCH, this.registry.tryValidateToken("garbage").getReason());
+        assertEquals(0, this.createdProviders.get());
+    }
+
+    @Test
+    public void testLightweightRejectionModeAppliesToRegistryAndPools() {
+        this.registry.validateToken(createToken(TENANT_A, "a"));
+        this.registry.setRejectionMode(RejectionMode.LIGHTWEIGHT);
+        InvalidTokenException unknownIssuer = this.registry.tryValidateToken(
+                createToken("https://cognito-idp.eu-central-1.amazonaws.com/eu-central-1_other", "x")).getException();
+        assertSame(InvalidTokenException.of(RejectionReason.ISSUER_MISMATCH), unknownIssuer);
+        assertEquals(0, unknownIssuer.getStackTrace().length);
+        assertEquals(RejectionMode.LIGHTWEIGHT, this.registry.getValidatorForIssuer(TENANT_A).getRejectionMode());
+        assertEquals(RejectionMode.LIGHTWEIGHT, this.registry.getValidatorForIssuer(TENANT_B).getRejectionMode());
+    }
+
+    @Test
+    public void testIdlePoolIsDropped() {
+        this.registry.validateToken(createToken(TENANT_A, "a"));
+        this.nanos.addAndGet(TimeUnit.MINUTES.toNanos(31));
+        this.registry.validateToken(createToken(TENANT_A, "a"));
+        assertEquals(2, this.createdProviders.get());
+    }
+
+    private String createToken(String issuer, String subject) {
+        return Jwts.builder()
+                .setHeaderParam("kid", "kid")
+                .setSubject(subject)
+                .setIssuer(issuer)
+                .claim("token_use", "access")
+                .signWith(this.keyPair.getPrivate())
+                .compact();
+    }
+}
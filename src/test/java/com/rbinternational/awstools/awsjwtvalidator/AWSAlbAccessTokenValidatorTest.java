@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 
 import java.security.KeyPair;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,6 +30,22 @@ class AWSAlbAccessTokenValidatorTest {
         assertEquals("ok", claimsJws.getBody().getSubject());
     }
 
+    @Test
+    public void testAsyncValidationOk() throws Exception {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        String ok = Jwts.builder()
+                .setSubject("ok")
+                .setIssuer(COGNITO_URL)
+                .claim("token_use", "access")
+                .signWith(keyPair.getPrivate())
+                .compact();
+        AWSAlbAccessTokenValidator validator = new AWSAlbAccessTokenValidator(COGNITO_URL);
+        validator.setSigningKeyResolver(new UnitTestingSigningKeyResolver(keyPair.getPublic()));
+        CompletableFuture<Jws<Claims>> result = validator.validateTokenAsync(ok).toCompletableFuture();
+        assertTrue(result.isDone());
+        assertEquals("ok", result.get().getBody().getSubject());
+    }
+
     @Test
     public void testMissingTokenSignatureFailsValidation() {
         KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
@@ -138,4 +155,40 @@ class AWSAlbAccessTokenValidatorTest {
         assertTrue(exception.getCause() instanceof IncorrectClaimException);
         assertTrue(exception.getMessage().contains("token_use"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTryValidateTokenReturnsReason() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        String wrongIssuer = Jwts.builder()
+                .setIssuer(COGNITO_URL + "x")
+                .claim("token_use", "access")
+                .signWith(keyPair.getPrivate())
+                .compact();
+        AWSAlbAccessTokenValidator validator = new AWSAlbAccessTokenValidator(COGNITO_URL);
+        validator.setSigningKeyResolver(new UnitTestingSigningKeyResolver(keyPair.getPublic()));
+        ValidationResult result = validator.tryValidateToken(wrongIssuer);
+        assertFalse(result.isValid());
+        assertEquals(RejectionReason.ISSUER_MISMATCH, result.getReason());
+        assertTrue(result.getException().getCause() instanceof IncorrectClaimException);
+    }
+
+    @Test
+    public void testLightweightRejectionIsPreallocated() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        String expired = Jwts.builder()
+                .setIssuer(COGNITO_URL)
+                .claim("token_use", "access")
+                .setExpiration(new Date(System.currentTimeMillis() - 60 * 1000))
+                .signWith(keyPair.getPrivate())
+                .compact();
+        AWSAlbAccessTokenValidator validator = new AWSAlbAccessTokenValidator(COGNITO_URL);
+        validator.setSigningKeyResolver(new UnitTestingSigningKeyResolver(keyPair.getPublic()));
+        validator.setRejectionMode(RejectionMode.LIGHTWEIGHT);
+        InvalidTokenException first = assertThrows(InvalidTokenException.class, () -> validator.validateToken(expired));
+        InvalidTokenException second = validator.tryValidateToken(expired).getException();
+        assertSame(first, second);
+        assertSame(InvalidTokenException.of(RejectionReason.EXPIRED), first);
+        assertEquals(0, first.getStackTrace().length);
+        assertNull(first.getCause());
+    }
+}
@@ -0,0 +1,109 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AWSAlbMultiRegionJwkProviderTest {
+
+    private static final String SIGNER = "arn:aws:elasticloadbalancing:%s:123456789012:loadbalancer/app/alb/0123456789";
+
+    private final KeyPair frankfurt = Keys.keyPairFor(SignatureAlgorithm.ES256);
+
+    private final KeyPair ireland = Keys.keyPairFor(SignatureAlgorithm.ES256);
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private final List<String> regions = Arrays.asList("eu-central-1", "eu-west-1");
+
+    @Test
+    public void testKeyIsResolvedFromSignerRegion() {
+        AWSAlbUserClaimsTokenValidator validator = new AWSAlbUserClaimsTokenValidator(
+                new AWSAlbMultiRegionSigningKeyResolver(AWSAlbMultiRegionJwkProvider.createProvider(this.regions, this::read)));
+        Claims claims = validator.validateToken(createToken(this.ireland, "eu-west-1")).getBody();
+        assertEquals("dummy", claims.getSubject());
+        validator.validateToken(createToken(this.frankfurt, "eu-central-1"));
+        validator.validateToken(createToken(this.frankfurt, "eu-central-1"));
+        assertEquals(2, this.reads.get());
+    }
+
+    @Test
+    public void testUnconfiguredRegionIsRejectedWithoutFetch() {
+        AWSAlbUserClaimsTokenValidator validator = new AWSAlbUserClaimsTokenValidator(
+                new AWSAlbMultiRegionSigningKeyResolver(AWSAlbMultiRegionJwkProvider.createProvider(this.regions, this::read)));
+        ValidationResult result = validator.tryValidateToken(createToken(this.ireland, "us-east-1"));
+        assertEquals(RejectionReason.UNKNOWN_KID, result.getReason());
+        assertEquals(0, this.reads.get());
+    }
+
+    @Test
+    public void testAsyncAndBatchValidationResolveFromSignerRegion() {
+        AWSAlbUserClaimsTokenValidator validator = new AWSAlbUserClaimsTokenValidator(
+                new AWSAlbMultiRegionSigningKeyResolver(AWSAlbMultiRegionJwkProvider.createProvider(this.regions, this::read)));
+        Claims claims = validator.validateTokenAsync(createToken(this.ireland, "eu-west-1"))
+                .toCompletableFuture().join().getBody();
+        assertEquals("dummy", claims.getSubject());
+        List<ValidationResult> results = validator.validateTokens(Arrays.asList(
+                createToken(this.ireland, "eu-west-1"), createToken(this.frankfurt, "eu-central-1"),
+                createToken(this.frankfurt, "eu-central-1"), createToken(this.ireland, "us-east-1")));
+        assertTrue(results.get(0).isValid());
+        assertTrue(results.get(1).isValid());
+        assertTrue(results.get(2).isValid());
+        assertEquals(RejectionReason.UNKNOWN_KID, results.get(3).getReason());
+        assertEquals(2, this.reads.get());
+    }
+
+    @Test
+    public void testKeyIdWithoutRegionIsResolvedFromOnlyRegion() throws Exception {
+        AWSAlbMultiRegionJwkProvider provider = AWSAlbMultiRegionJwkProvider.createProvider(
+                Collections.singletonList("eu-west-1"), this::read);
+        assertEquals("kid", provider.get(AWSAlbMultiRegionJwkProvider.regionalKeyId("no-arn", "kid")).getId());
+        assertEquals("eu-west-1/kid", AWSAlbMultiRegionJwkProvider.regionalKeyId(String.format(SIGNER, "eu-west-1"), "kid"));
+        assertNull(AWSAlbMultiRegionJwkProvider.regionalKeyId(String.format(SIGNER, "eu-west-1"), null));
+    }
+
+    @Test
+    public void testWarmUpFillsRegionCache() {
+        AWSAlbMultiRegionJwkProvider provider = AWSAlbMultiRegionJwkProvider.createProvider(this.regions, this::read);
+        assertEquals(1, provider.warmUp("eu-west-1", Arrays.asList("kid", "")));
+        assertEquals(1, this.reads.get());
+        AWSAlbUserClaimsTokenValidator validator
+                = new AWSAlbUserClaimsTokenValidator(new AWSAlbMultiRegionSigningKeyResolver(provider));
+        validator.validateToken(createToken(this.ireland, "eu-west-1"));
+        assertEquals(1, this.reads.get());
+    }
+
+    @Test
+    public void testRegionOf() {
+        assertEquals("eu-west-1", AWSAlbMultiRegionJwkProvider.regionOf(String.format(SIGNER, "eu-west-1")));
+        assertNull(AWSAlbMultiRegionJwkProvider.regionOf("arn:aws:elasticloadbalancing::123"));
+        assertNull(AWSAlbMultiRegionJwkProvider.regionOf("eu-west-1"));
+        assertNull(AWSAlbMultiRegionJwkProvider.regionOf(null));
+    }
+
+    private String read(URL url) {
+        this.reads.incrementAndGet();
+        KeyPair keyPair = url.getHost().contains("eu-west-1") ? this.ireland : this.frankfurt;
+        return new MockPublicKeyReader(keyPair.getPublic()).readPublicKey(url);
+    }
+
+    private static String createToken(KeyPair keyPair, String region) {
+        return Jwts.builder()
+                .setHeaderParam("kid", "kid")
+                .setHeaderParam("signer", String.format(SIGNER, region))
+                .setSubject("dummy")
+                .signWith(keyPair.getPrivate())
+                .compact();
+    }
+}
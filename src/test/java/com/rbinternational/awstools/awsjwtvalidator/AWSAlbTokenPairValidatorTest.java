@@ -0,0 +1,97 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AWSAlbTokenPairValidatorTest {
+
+    private static final String COGNITO_URL = "https://cognito-idp.eu-central-1.amazonaws.com/eu-central-1_xxzzyyzz";
+
+    private final KeyPair cognitoKeyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+
+    private final KeyPair albKeyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+
+    private ExecutorService executor;
+
+    private AWSAlbAccessTokenValidator accessTokenValidator;
+
+    private AWSAlbUserClaimsTokenValidator userClaimsValidator;
+
+    @BeforeEach
+    public void setUp() {
+        this.executor = Executors.newFixedThreadPool(2);
+        this.accessTokenValidator = new AWSAlbAccessTokenValidator(COGNITO_URL);
+        this.accessTokenValidator.setSigningKeyResolver(
+                new UnitTestingSigningKeyResolver(this.cognitoKeyPair.getPublic()));
+        this.userClaimsValidator = new AWSAlbUserClaimsTokenValidator(
+                new UnitTestingSigningKeyResolver(this.albKeyPair.getPublic()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testMatchingTokensAreMerged() {
+        AWSAlbTokenPairValidator validator = new AWSAlbTokenPairValidator(this.accessTokenValidator,
+                this.userClaimsValidator, this.executor);
+        AWSAlbPrincipal principal = validator.validateTokens(accessToken("user", new Date(System.currentTimeMillis()
+                + 60 * 1000)), userClaimsToken("user"));
+        assertEquals("user", principal.getName());
+        assertEquals("user@example.com", principal.getClaim("email"));
+        assertEquals("access", principal.getClaim("token_use"));
+    }
+
+    @Test
+    public void testMismatchingSubjectsFailValidation() {
+        AWSAlbTokenPairValidator validator
+                = new AWSAlbTokenPairValidator(this.accessTokenValidator, this.userClaimsValidator);
+        InvalidTokenException exception = assertThrows(InvalidTokenException.class,
+                () -> validator.validateTokens(accessToken("user", null), userClaimsToken("other")));
+        assertEquals(RejectionReason.INVALID_CLAIM, exception.getReason());
+    }
+
+    @Test
+    public void testInvalidAccessTokenFailsValidation() {
+        AWSAlbTokenPairValidator validator = new AWSAlbTokenPairValidator(this.accessTokenValidator,
+                this.userClaimsValidator, this.executor);
+        String expired = accessToken("user", new Date(System.currentTimeMillis() - 60 * 1000));
+        InvalidTokenException exception = assertThrows(InvalidTokenException.class,
+                () -> validator.validateTokens(expired, userClaimsToken("user")));
+        assertEquals(RejectionReason.EXPIRED, exception.getReason());
+        exception = assertThrows(InvalidTokenException.class,
+                () -> validator.validateTokens(accessToken("user", null), "garbage"));
+        assertEquals(RejectionReason.MALFORMED, exception.getReason());
+    }
+
+    private String accessToken(String subject, Date expiration) {
+        return Jwts.builder()
+                .setSubject(subject)
+                .setIssuer(COGNITO_URL)
+                .claim("token_use", "access")
+                .setExpiration(expiration)
+                .signWith(this.cognitoKeyPair.getPrivate())
+                .compact();
+    }
+
+    private String userClaimsToken(String subject) {
+        return Jwts.builder()
+                .setHeaderParam("kid", "kid")
+                .setSubject(subject)
+                .claim("email", subject + "@example.com")
+                .signWith(this.albKeyPair.getPrivate())
+                .compact();
+    }
+}
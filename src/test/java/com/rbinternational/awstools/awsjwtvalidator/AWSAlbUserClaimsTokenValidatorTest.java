@@ -5,9 +5,23 @@ import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
 import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -27,6 +41,30 @@ public class AWSAlbUserClaimsTokenValidatorTest {
         assertEquals(claimsJws.getBody().getSubject(), "dummy");
     }
 
+    @Test
+    public void testValidationOfBytesAndCharSequence() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        String dummyJws = Jwts.builder()
+                .setHeaderParam("kid", String.valueOf(System.currentTimeMillis()))
+                .setSubject("dummy")
+                .signWith(keyPair.getPrivate())
+                .compact();
+        AWSAlbUserClaimsTokenValidator validator = new AWSAlbUserClaimsTokenValidator(
+                getSigningKeyResolver(keyPair.getPublic()));
+        byte[] header = ("x-amzn-oidc-data: " + dummyJws).getBytes(StandardCharsets.US_ASCII);
+        int offset = header.length - dummyJws.length();
+        assertEquals("dummy", validator.validateToken(header, offset, dummyJws.length()).getBody().getSubject());
+        ByteBuffer direct = ByteBuffer.allocateDirect(header.length).put(header);
+        direct.position(offset);
+        assertEquals("dummy", validator.validateToken(direct).getBody().getSubject());
+        assertEquals(offset, direct.position());
+        assertEquals("dummy", validator.validateToken(CharBuffer.wrap(dummyJws)).getBody().getSubject());
+        InvalidTokenException exception = assertThrows(InvalidTokenException.class,
+                () -> validator.validateToken(header, 0, header.length));
+        assertEquals(RejectionReason.MALFORMED, exception.getReason());
+        assertThrows(InvalidTokenException.class, () -> validator.validateToken(header, offset, header.length));
+    }
+
     @Test
     public void testMissingTokenSignatureFailsValidation() {
         KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
@@ -70,6 +108,176 @@ public class AWSAlbUserClaimsTokenValidatorTest {
         assertTrue(exception.getCause() instanceof SignatureException);
     }
 
+    @Test
+    public void testAsyncValidationWithCachedKeyCompletesInline() throws Exception {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        String dummyJws = Jwts.builder()
+                .setHeaderParam("kid", String.valueOf(System.currentTimeMillis()))
+                .setSubject("dummy")
+                .signWith(keyPair.getPrivate())
+                .compact();
+        AWSAlbUserClaimsTokenValidator validator
+                = new AWSAlbUserClaimsTokenValidator(getSigningKeyResolver(keyPair.getPublic()));
+        validator.validateToken(dummyJws);
+        CompletableFuture<Jws<Claims>> result = validator.validateTokenAsync(dummyJws).toCompletableFuture();
+        assertTrue(result.isDone());
+        assertEquals("dummy", result.get().getBody().getSubject());
+    }
+
+    @Test
+    public void testAsyncValidationFetchesMissingKey() throws Exception {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        String dummyJws = Jwts.builder()
+                .setHeaderParam("kid", String.valueOf(System.currentTimeMillis()))
+                .setSubject("dummy")
+                .signWith(keyPair.getPrivate())
+                .compact();
+        CountDownLatch release = new CountDownLatch(1);
+        PublicKeyReader mockReader = new MockPublicKeyReader(keyPair.getPublic());
+        PublicKeyReader blockingReader = url -> {
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return mockReader.readPublicKey(url);
+        };
+        AWSAlbUserClaimsTokenValidator validator = new AWSAlbUserClaimsTokenValidator(
+                new AWSAlbUserClaimsSigningKeyResolver(AWSAlbUserClaimsJwkProvider.createProvider(
+                        AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, blockingReader)));
+        CompletableFuture<Jws<Claims>> result = validator.validateTokenAsync(dummyJws).toCompletableFuture();
+        assertFalse(result.isDone());
+        release.countDown();
+        assertEquals("dummy", result.get(5, TimeUnit.SECONDS).getBody().getSubject());
+    }
+
+    @Test
+    public void testAsyncValidationFailsForInvalidSignature() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        String badSignature = Jwts.builder()
+                .setHeaderParam("kid", String.valueOf(System.currentTimeMillis()))
+                .setSubject("badsignature")
+                .signWith(keyPair.getPrivate())
+                .compact();
+        KeyPair bad = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        AWSAlbUserClaimsTokenValidator validator
+                = new AWSAlbUserClaimsTokenValidator(getSigningKeyResolver(bad.getPublic()));
+        CompletableFuture<Jws<Claims>> result = validator.validateTokenAsync(badSignature).toCompletableFuture();
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof InvalidTokenException);
+        assertTrue(exception.getCause().getCause() instanceof SignatureException);
+    }
+
+    @Test
+    public void testBatchValidationKeepsOrderAndResolvesKeyOnce() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        JwtBuilder builder = Jwts.builder().setHeaderParam("kid", "kid").signWith(keyPair.getPrivate());
+        String first = builder.setSubject("first").compact();
+        String expired = builder.setSubject("expired")
+                .setExpiration(new Date(System.currentTimeMillis() - 60 * 1000)).compact();
+        String second = builder.setSubject("second").setExpiration(null).compact();
+        AtomicInteger reads = new AtomicInteger();
+        PublicKeyReader mockReader = new MockPublicKeyReader(keyPair.getPublic());
+        AWSAlbUserClaimsTokenValidator validator = new AWSAlbUserClaimsTokenValidator(
+                new AWSAlbUserClaimsSigningKeyResolver(new AWSAlbUserClaimsJwkProvider(
+                        AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, url -> {
+                            reads.incrementAndGet();
+                            return mockReader.readPublicKey(url);
+                        })));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<ValidationResult> results = validator.validateTokens(
+                    Arrays.asList(first, expired, "garbage", second), executor);
+            assertEquals(4, results.size());
+            assertEquals("first", results.get(0).getClaimsJws().getBody().getSubject());
+            assertTrue(results.get(1).getException().getCause() instanceof ExpiredJwtException);
+            assertFalse(results.get(2).isValid());
+            assertEquals("second", results.get(3).getOrThrow().getBody().getSubject());
+            assertEquals(1, reads.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchValidationFailsAllTokensOfUnavailableKey() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        JwtBuilder builder = Jwts.builder().setHeaderParam("kid", "kid").signWith(keyPair.getPrivate());
+        AtomicInteger reads = new AtomicInteger();
+        AWSAlbUserClaimsTokenValidator validator = new AWSAlbUserClaimsTokenValidator(
+                new AWSAlbUserClaimsSigningKeyResolver(new AWSAlbUserClaimsJwkProvider(
+                        AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, url -> {
+                            reads.incrementAndGet();
+                            throw new IOException("key endpoint not available");
+                        })));
+        List<ValidationResult> results = validator.validateTokens(Arrays.asList(
+                builder.setSubject("first").compact(), builder.setSubject("second").compact()));
+        assertFalse(results.get(0).isValid());
+        assertFalse(results.get(1).isValid());
+        assertThrows(InvalidTokenException.class, () -> results.get(1).getOrThrow());
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testClaimsProjectionKeepsOnlyRequestedClaims() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        String token = Jwts.builder()
+                .setHeaderParam("kid", "kid")
+                .setSubject("dummy")
+                .claim("email", "dummy@example.com")
+                .claim("address", Collections.singletonMap("street", "Am Stadtpark 9"))
+                .claim("groups", Arrays.asList("a", "b", "c"))
+                .setExpiration(new Date(System.currentTimeMillis() + 60 * 1000))
+                .signWith(keyPair.getPrivate())
+                .compact();
+        AWSAlbUserClaimsTokenValidator validator
+                = new AWSAlbUserClaimsTokenValidator(getSigningKeyResolver(keyPair.getPublic()));
+        validator.setClaimsProjection(ClaimsProjection.of("sub", "email"));
+        Claims claims = validator.validateToken(token).getBody();
+        assertEquals("dummy", claims.getSubject());
+        assertEquals("dummy@example.com", claims.get("email"));
+        assertNotNull(claims.getExpiration());
+        assertFalse(claims.containsKey("address"));
+        assertFalse(claims.containsKey("groups"));
+    }
+
+    @Test
+    public void testClaimsProjectionStillChecksExpiration() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        String expired = Jwts.builder()
+                .setHeaderParam("kid", "kid")
+                .setSubject("expired")
+                .setExpiration(new Date(System.currentTimeMillis() - 60 * 1000))
+                .signWith(keyPair.getPrivate())
+                .compact();
+        AWSAlbUserClaimsTokenValidator validator
+                = new AWSAlbUserClaimsTokenValidator(getSigningKeyResolver(keyPair.getPublic()));
+        validator.setTokenScreener(null);
+        validator.setClaimsProjection(ClaimsProjection.of("sub"));
+        Exception exception = assertThrows(InvalidTokenException.class, () -> validator.validateToken(expired));
+        assertTrue(exception.getCause() instanceof ExpiredJwtException);
+    }
+
+    @Test
+    public void testValidationToTypedClaims() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        String token = Jwts.builder()
+                .setHeaderParam("kid", "kid")
+                .setSubject("dummy")
+                .claim("email", "dummy@example.com")
+                .claim("address", Collections.singletonMap("street", "Am Stadtpark 9"))
+                .signWith(keyPair.getPrivate())
+                .compact();
+        AWSAlbUserClaimsTokenValidator validator
+                = new AWSAlbUserClaimsTokenValidator(getSigningKeyResolver(keyPair.getPublic()));
+        validator.setClaimsProjection(ClaimsProjection.of(UserClaims.class));
+        UserClaims claims = validator.validateToken(token, UserClaims.class);
+        assertEquals("dummy", claims.sub);
+        assertEquals("dummy@example.com", claims.email);
+    }
+
     private static SigningKeyResolver getSigningKeyResolver(PublicKey pk) {
         PublicKeyReader publicKeyReader = new MockPublicKeyReader(pk);
         return new AWSAlbUserClaimsSigningKeyResolver(
@@ -78,4 +286,10 @@ public class AWSAlbUserClaimsTokenValidatorTest {
                         publicKeyReader));
     }
 
+    public static class UserClaims {
+
+        public String sub;
+
+        public String email;
+    }
 }
@@ -0,0 +1,95 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingJwkProviderTest {
+
+    private final PublicKey publicKey = Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic();
+
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private volatile boolean failing;
+
+    private JwkProvider delegate;
+
+    @BeforeEach
+    public void setUp() {
+        this.delegate = keyId -> {
+            this.fetches.incrementAndGet();
+            if (this.failing) {
+                throw new SigningKeyNotFoundException("key endpoint not available", null);
+            }
+            return new PublicKeyJwk(keyId, null, this.publicKey);
+        };
+    }
+
+    @Test
+    public void testStatsAreRecorded() throws Exception {
+        CachingJwkProvider provider = create(KeyCacheConfig.builder().maximumSize(100).build());
+        provider.get("kid");
+        provider.get("kid");
+        provider.get("other");
+        CacheStats stats = provider.getStats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(2, stats.missCount());
+        assertEquals(2, stats.loadSuccessCount());
+        assertEquals(2, provider.getEstimatedSize());
+    }
+
+    @Test
+    public void testKeyIsRefreshedInBackground() throws Exception {
+        CachingJwkProvider provider = create(KeyCacheConfig.builder()
+                .expireAfterWrite(Duration.ofHours(2))
+                .refreshAfterWrite(Duration.ofHours(1))
+                .build());
+        Jwk first = provider.get("kid");
+        this.nanos.addAndGet(TimeUnit.MINUTES.toNanos(61));
+        assertSame(first, provider.get("kid"));
+        assertEquals(2, this.fetches.get());
+        assertNotSame(first, provider.get("kid"));
+    }
+
+    @Test
+    public void testExpiredKeyIsServedWhileFetchFails() throws Exception {
+        CachingJwkProvider provider = create(KeyCacheConfig.builder()
+                .expireAfterWrite(Duration.ofHours(1))
+                .staleWhileError(Duration.ofHours(1))
+                .build());
+        Jwk jwk = provider.get("kid");
+        this.failing = true;
+        this.nanos.addAndGet(TimeUnit.MINUTES.toNanos(90));
+        assertSame(jwk, provider.get("kid"));
+        assertEquals(2, this.fetches.get());
+        this.nanos.addAndGet(TimeUnit.MINUTES.toNanos(31));
+        assertThrows(SigningKeyNotFoundException.class, () -> provider.get("kid"));
+    }
+
+    @Test
+    public void testRefreshMustBeShorterThanExpiry() {
+        assertThrows(IllegalArgumentException.class, () -> KeyCacheConfig.builder()
+                .expireAfterWrite(Duration.ofHours(1))
+                .refreshAfterWrite(Duration.ofHours(1))
+                .build());
+    }
+
+    private CachingJwkProvider create(KeyCacheConfig config) {
+        return new CachingJwkProvider(this.delegate, config, Runnable::run, this.nanos::get);
+    }
+}
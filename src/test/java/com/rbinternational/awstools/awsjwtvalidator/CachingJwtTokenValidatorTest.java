@@ -0,0 +1,129 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.jsonwebtoken.*;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingJwtTokenValidatorTest {
+
+    private KeyPair keyPair;
+
+    private CountingValidator delegate;
+
+    private AtomicLong nanos;
+
+    private AtomicLong wallClockStart;
+
+    private CachingJwtTokenValidator validator;
+
+    @BeforeEach
+    public void setUp() {
+        this.keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        this.delegate = new CountingValidator(new AWSAlbUserClaimsTokenValidator(
+                new UnitTestingSigningKeyResolver(this.keyPair.getPublic())));
+        this.nanos = new AtomicLong();
+        this.wallClockStart = new AtomicLong(System.currentTimeMillis());
+        Ticker ticker = this.nanos::get;
+        this.validator = new CachingJwtTokenValidator(this.delegate, 100, Duration.ofMinutes(10),
+                Duration.ofSeconds(5), ticker,
+                () -> this.wallClockStart.get() + TimeUnit.NANOSECONDS.toMillis(this.nanos.get()), Runnable::run);
+    }
+
+    @Test
+    public void testValidTokenIsCached() {
+        String token = token(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+        Jws<Claims> first = this.validator.validateToken(token);
+        Jws<Claims> second = this.validator.validateToken(token);
+        assertSame(first, second);
+        assertEquals(1, this.delegate.calls.get());
+        assertEquals(1, this.validator.getHitCount());
+        assertEquals(1, this.validator.getMissCount());
+    }
+
+    @Test
+    public void testCachedTokenExpiresWithToken() {
+        String token = token(new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60)));
+        this.validator.validateToken(token);
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        this.validator.validateToken(token);
+        assertEquals(2, this.delegate.calls.get());
+        assertEquals(0, this.validator.getHitCount());
+    }
+
+    @Test
+    public void testTokenExpirationFollowsInjectedClock() {
+        Date expiration = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        this.wallClockStart.set(expiration.getTime() - TimeUnit.SECONDS.toMillis(30));
+        String token = token(expiration);
+        this.validator.validateToken(token);
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(29));
+        this.validator.validateToken(token);
+        assertEquals(1, this.delegate.calls.get());
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        this.validator.validateToken(token);
+        assertEquals(2, this.delegate.calls.get());
+    }
+
+    @Test
+    public void testCachedTokenExpiresAfterMaximumTtl() {
+        String token = token(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+        this.validator.validateToken(token);
+        this.nanos.addAndGet(TimeUnit.MINUTES.toNanos(11));
+        this.validator.validateToken(token);
+        assertEquals(2, this.delegate.calls.get());
+        assertEquals(1, this.validator.getEvictionCount());
+    }
+
+    @Test
+    public void testInvalidTokenIsCachedForFailureTtl() {
+        String expired = token(new Date(System.currentTimeMillis() - 60 * 1000));
+        InvalidTokenException first = assertThrows(InvalidTokenException.class,
+                () -> this.validator.validateToken(expired));
+        assertTrue(first.getCause() instanceof ExpiredJwtException);
+        InvalidTokenException second = assertThrows(InvalidTokenException.class,
+                () -> this.validator.validateToken(expired));
+        assertSame(first, second);
+        assertEquals(1, this.delegate.calls.get());
+
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        assertThrows(InvalidTokenException.class, () -> this.validator.validateToken(expired));
+        assertEquals(2, this.delegate.calls.get());
+    }
+
+    private String token(Date expiration) {
+        return Jwts.builder()
+                .setHeaderParam("kid", String.valueOf(System.currentTimeMillis()))
+                .setSubject("cached")
+                .setExpiration(expiration)
+                .signWith(this.keyPair.getPrivate())
+                .compact();
+    }
+
+    private static class CountingValidator implements JwtTokenValidator {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final JwtTokenValidator delegate;
+
+        CountingValidator(JwtTokenValidator delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Jws<Claims> validateToken(String token) throws InvalidTokenException {
+            this.calls.incrementAndGet();
+            return this.delegate.validateToken(token);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.NetworkException;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GuardedJwkProviderTest {
+
+    private static final String KNOWN_KEY_ID = "known";
+
+    private static final String ROTATED_KEY_ID = "rotated-1";
+
+    private static final String UNAVAILABLE_KEY_ID = "unavailable";
+
+    private CountingJwkProvider delegate;
+
+    private AtomicLong nanos;
+
+    private GuardedJwkProvider provider;
+
+    @BeforeEach
+    public void setUp() {
+        this.delegate = new CountingJwkProvider();
+        this.nanos = new AtomicLong();
+        Ticker ticker = this.nanos::get;
+        this.provider = new GuardedJwkProvider(this.delegate, Duration.ofMinutes(1), 100, 3, 1,
+                keyId -> keyId.startsWith("rotated-"), ticker, Runnable::run);
+    }
+
+    @Test
+    public void testFailedKeyIdIsRejectedWithoutFetch() {
+        assertThrows(SigningKeyNotFoundException.class, () -> this.provider.get("forged"));
+        InvalidTokenException exception = assertThrows(InvalidTokenException.class, () -> this.provider.get("forged"));
+        assertEquals(RejectionReason.UNKNOWN_KID, exception.getReason());
+        assertEquals(1, this.delegate.calls.get());
+    }
+
+    @Test
+    public void testFailedKeyIdIsFetchedAgainAfterTtl() {
+        assertThrows(SigningKeyNotFoundException.class, () -> this.provider.get("forged"));
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertThrows(SigningKeyNotFoundException.class, () -> this.provider.get("forged"));
+        assertEquals(2, this.delegate.calls.get());
+    }
+
+    @Test
+    public void testUnknownKeyIdFloodIsRateLimited() {
+        for (int i = 0; i < 3; i++) {
+            String keyId = "forged-" + i;
+            assertThrows(SigningKeyNotFoundException.class, () -> this.provider.get(keyId));
+        }
+        InvalidTokenException exception = assertThrows(InvalidTokenException.class,
+                () -> this.provider.get(KNOWN_KEY_ID));
+        assertTrue(exception.getMessage().contains("rate limit"));
+        assertEquals(3, this.delegate.calls.get());
+
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertDoesNotThrow(() -> this.provider.get(KNOWN_KEY_ID));
+        assertEquals(4, this.delegate.calls.get());
+    }
+
+    @Test
+    public void testFailedFetchIsNotRemembered() {
+        assertThrows(NetworkException.class, () -> this.provider.get(UNAVAILABLE_KEY_ID));
+        assertThrows(NetworkException.class, () -> this.provider.get(UNAVAILABLE_KEY_ID));
+        assertEquals(2, this.delegate.calls.get());
+    }
+
+    @Test
+    public void testKeyIdInSourceFormatUsesReservedFetches() {
+        for (int i = 0; i < 3; i++) {
+            String keyId = "forged-" + i;
+            assertThrows(SigningKeyNotFoundException.class, () -> this.provider.get(keyId));
+        }
+        assertThrows(InvalidTokenException.class, () -> this.provider.get("forged-3"));
+        assertEquals(ROTATED_KEY_ID, assertDoesNotThrow(() -> this.provider.get(ROTATED_KEY_ID)).getId());
+        assertEquals(4, this.delegate.calls.get());
+    }
+
+    @Test
+    public void testFloodOfKeyIdsInSourceFormatIsRateLimited() {
+        for (int i = 0; i < 1_000; i++) {
+            String keyId = "rotated-" + UUID.randomUUID();
+            assertThrows(Exception.class, () -> this.provider.get(keyId));
+        }
+        assertEquals(3 + GuardedJwkProvider.DEFAULT_RESERVED_BURST, this.delegate.calls.get());
+    }
+
+    private static class CountingJwkProvider implements JwkProvider {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Jwk get(String keyId) throws SigningKeyNotFoundException {
+            this.calls.incrementAndGet();
+            if (UNAVAILABLE_KEY_ID.equals(keyId)) {
+                throw new NetworkException("Cannot obtain jwks", new IOException("connect timed out"));
+            }
+            if (!KNOWN_KEY_ID.equals(keyId) && !ROTATED_KEY_ID.equals(keyId)) {
+                throw new SigningKeyNotFoundException("No key found for kid " + keyId, null);
+            }
+            Map<String, Object> values = new HashMap<>();
+            values.put("kid", keyId);
+            values.put("kty", "EC");
+            values.put("alg", "ES256");
+            values.put("use", "sig");
+            return Jwk.fromValues(values);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.InvalidPublicKeyException;
+import com.auth0.jwk.Jwk;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyRegistryTest {
+
+    private final RSAPublicKey publicKey = (RSAPublicKey) Keys.keyPairFor(SignatureAlgorithm.RS256).getPublic();
+
+    @Test
+    public void testPublicKeyIsPreparedOnce() throws Exception {
+        KeyRegistry registry = new KeyRegistry();
+        registry.put(jwk("kid1", this.publicKey.getModulus()));
+        PublicKey prepared = registry.getPublicKey("kid1");
+        assertEquals(this.publicKey, prepared);
+        assertSame(prepared, registry.getPublicKey("kid1"));
+        assertSame(prepared, registry.get("kid1").getPublicKey());
+        assertEquals("RS256", registry.get("kid1").getAlgorithm());
+        assertNull(registry.getPublicKey("unknown"));
+        assertNull(registry.getPublicKey(null));
+    }
+
+    @Test
+    public void testUpdatesDontChangeSnapshots() throws Exception {
+        KeyRegistry registry = new KeyRegistry();
+        registry.putAll(Arrays.asList(new PublicKeyJwk("kid1", null, this.publicKey),
+                new PublicKeyJwk("kid2", null, this.publicKey)));
+        Set<String> before = registry.getKeyIds();
+        registry.replaceAll(Collections.singletonList(new PublicKeyJwk("kid3", null, this.publicKey)));
+        assertEquals(new HashSet<>(Arrays.asList("kid1", "kid2")), before);
+        assertEquals(Collections.singleton("kid3"), registry.getKeyIds());
+        assertTrue(registry.remove("kid3"));
+        assertFalse(registry.remove("kid3"));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testInvalidKeyLeavesRegistryUnchanged() throws Exception {
+        KeyRegistry registry = new KeyRegistry();
+        registry.put(new PublicKeyJwk("kid1", null, this.publicKey));
+        Map<String, Object> invalid = new HashMap<>();
+        invalid.put("kid", "kid2");
+        invalid.put("kty", "unknown");
+        assertThrows(InvalidPublicKeyException.class, () -> registry.replaceAll(Collections.singletonList(
+                Jwk.fromValues(invalid))));
+        assertEquals(Collections.singleton("kid1"), registry.getKeyIds());
+    }
+
+    private Jwk jwk(String keyId, BigInteger modulus) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("kid", keyId);
+        values.put("kty", "RSA");
+        values.put("alg", "RS256");
+        values.put("n", Encoders.BASE64URL.encode(unsigned(modulus)));
+        values.put("e", Encoders.BASE64URL.encode(unsigned(this.publicKey.getPublicExponent())));
+        return Jwk.fromValues(values);
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+}
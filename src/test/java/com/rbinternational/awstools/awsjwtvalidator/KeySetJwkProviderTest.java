@@ -0,0 +1,195 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeySetJwkProviderTest {
+
+    private final PublicKey publicKey = Keys.keyPairFor(SignatureAlgorithm.RS256).getPublic();
+
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    private volatile List<String> published = Arrays.asList("kid1", "kid2");
+
+    private volatile boolean failing;
+
+    @TempDir
+    Path directory;
+
+    private final KeySetJwkProvider.KeySetSource source = () -> {
+        this.downloads.incrementAndGet();
+        if (this.failing) {
+            throw new SigningKeyNotFoundException("key endpoint not available", null);
+        }
+        List<Jwk> keys = new ArrayList<>();
+        for (String keyId : this.published) {
+            keys.add(new PublicKeyJwk(keyId, "RS256", this.publicKey));
+        }
+        return keys;
+    };
+
+    private final KeySetJwkProvider provider = createProvider(null);
+
+    @Test
+    public void testOneDownloadServesAllKeysAndUnknownKeyIdsAreLimited() throws Exception {
+        assertEquals("kid1", this.provider.get("kid1").getId());
+        assertEquals("kid2", this.provider.get("kid2").getId());
+        assertEquals(1, this.downloads.get());
+        InvalidTokenException unknown = assertThrows(InvalidTokenException.class, () -> this.provider.get("forged"));
+        assertEquals(RejectionReason.UNKNOWN_KID, unknown.getReason());
+        assertThrows(InvalidTokenException.class, () -> this.provider.get("forged"));
+        assertEquals(1, this.downloads.get());
+        this.published = Arrays.asList("kid1", "kid2", "kid3");
+        assertThrows(InvalidTokenException.class, () -> this.provider.get("kid3"));
+        this.nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertEquals("kid3", this.provider.get("kid3").getId());
+        assertEquals(2, this.downloads.get());
+    }
+
+    @Test
+    public void testSnapshotIsServedBeforeDownloadAndWrittenBack() throws Exception {
+        KeySnapshotStore snapshotStore = new KeySnapshotStore(this.directory.resolve("keys.json"));
+        createProvider(snapshotStore).get("kid1");
+        assertEquals(2, snapshotStore.load().size());
+        this.failing = true;
+        KeySetJwkProvider restarted = createProvider(snapshotStore);
+        assertEquals(2, this.downloads.get());
+        assertEquals("kid1", restarted.get("kid1").getId());
+        assertEquals(2, this.downloads.get());
+        this.failing = false;
+        this.published = Arrays.asList("kid2", "kid3");
+        KeySetJwkProvider rotated = createProvider(snapshotStore);
+        assertEquals(new HashSet<>(Arrays.asList("kid1", "kid2", "kid3")), rotated.getKeyIds());
+        List<String> stored = new ArrayList<>();
+        for (KeySnapshotStore.Entry entry : snapshotStore.load()) {
+            stored.add(entry.getKeyId());
+        }
+        assertEquals(new HashSet<>(Arrays.asList("kid2", "kid3")), new HashSet<>(stored));
+    }
+
+    @Test
+    public void testRotatedKeyIsKeptForGracePeriod() throws Exception {
+        this.provider.get("kid1");
+        this.published = Arrays.asList("kid2", "kid3");
+        this.nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        this.provider.get("kid3");
+        assertEquals(new HashSet<>(Arrays.asList("kid1", "kid2", "kid3")), this.provider.getKeyIds());
+        this.nanos.addAndGet(TimeUnit.MINUTES.toNanos(60));
+        assertThrows(InvalidTokenException.class, () -> this.provider.get("kid1"));
+        this.provider.refresh();
+        assertEquals(new HashSet<>(Arrays.asList("kid2", "kid3")), this.provider.getKeyIds());
+    }
+
+    @Test
+    public void testKeysAreKeptWhenDownloadFails() throws Exception {
+        this.provider.get("kid1");
+        this.failing = true;
+        this.nanos.addAndGet(TimeUnit.DAYS.toNanos(6));
+        assertEquals("kid1", this.provider.get("kid1").getId());
+        assertEquals(2, this.downloads.get());
+        assertThrows(SigningKeyNotFoundException.class, this.provider::refresh);
+        assertNotNull(this.provider.getIfPresent("kid2"));
+        this.failing = false;
+        this.provider.get("kid1");
+        assertEquals(3, this.downloads.get());
+        this.nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        this.provider.get("kid1");
+        assertEquals(4, this.downloads.get());
+    }
+
+    @Test
+    public void testUnknownKeyIdAfterFailedDownloadIsReportedAsFetchFailure() throws Exception {
+        this.failing = true;
+        assertThrows(SigningKeyNotFoundException.class, () -> this.provider.get("kid1"));
+        InvalidTokenException rejected = assertThrows(InvalidTokenException.class, () -> this.provider.get("kid1"));
+        assertEquals(RejectionReason.KEY_FETCH_FAILED, rejected.getReason());
+        assertEquals(1, this.downloads.get());
+        this.failing = false;
+        this.nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertEquals("kid1", this.provider.get("kid1").getId());
+        InvalidTokenException unknown = assertThrows(InvalidTokenException.class, () -> this.provider.get("forged"));
+        assertEquals(RejectionReason.UNKNOWN_KID, unknown.getReason());
+    }
+
+    @Test
+    public void testKeyDownloadedByOtherThreadAfterMissIsServed() throws Exception {
+        AtomicReference<Thread> missingThread = new AtomicReference<>();
+        CountDownLatch missed = new CountDownLatch(1);
+        CountDownLatch downloaded = new CountDownLatch(1);
+        KeySetJwkProvider provider = new KeySetJwkProvider(() -> {
+            this.downloads.incrementAndGet();
+            List<Jwk> keys = new ArrayList<>();
+            for (String keyId : this.published) {
+                keys.add(new PublicKeyJwk(keyId, "RS256", this.publicKey));
+            }
+            return keys;
+        }, Duration.ofMinutes(1), Duration.ofHours(1), Duration.ofDays(5), () -> {
+            // the first clock read of the missing thread follows its failed lookup, hold it until the download is done
+            if (missingThread.compareAndSet(Thread.currentThread(), null)) {
+                missed.countDown();
+                try {
+                    downloaded.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return this.nanos.get();
+        }, Runnable::run);
+        this.published = Arrays.asList("kid1");
+        provider.get("kid1");
+        this.published = Arrays.asList("kid1", "kid2");
+        this.nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+        FutureTask<Jwk> lookup = new FutureTask<>(() -> provider.get("kid2"));
+        Thread thread = new Thread(lookup);
+        missingThread.set(thread);
+        thread.start();
+        assertTrue(missed.await(5, TimeUnit.SECONDS));
+        assertEquals("kid2", provider.get("kid2").getId());
+        downloaded.countDown();
+        assertEquals("kid2", lookup.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(2, this.downloads.get());
+    }
+
+    @Test
+    public void testKeyWhichCantBeBuiltIsSkipped() throws Exception {
+        Map<String, Object> unsupported = new HashMap<>();
+        unsupported.put("kid", "okp");
+        unsupported.put("kty", "OKP");
+        KeySetJwkProvider provider = new KeySetJwkProvider(() -> Arrays.asList(
+                Jwk.fromValues(unsupported), new PublicKeyJwk("kid1", "RS256", this.publicKey)),
+                Duration.ofMinutes(1), Duration.ofHours(1), Duration.ofDays(5), this.nanos::get, Runnable::run);
+        assertEquals("kid1", provider.get("kid1").getId());
+        assertEquals(new HashSet<>(Arrays.asList("kid1")), provider.getKeyIds());
+    }
+
+    private KeySetJwkProvider createProvider(KeySnapshotStore snapshotStore) {
+        return new KeySetJwkProvider(this.source, Duration.ofMinutes(1), Duration.ofHours(1), Duration.ofDays(5),
+                this.nanos::get, Runnable::run, snapshotStore);
+    }
+}
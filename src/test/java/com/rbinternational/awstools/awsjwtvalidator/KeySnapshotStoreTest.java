@@ -0,0 +1,88 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeySnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testSavedKeysAreLoaded() throws Exception {
+        PublicKey ec = Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic();
+        PublicKey rsa = Keys.keyPairFor(SignatureAlgorithm.RS256).getPublic();
+        Instant fetchedAt = Instant.ofEpochMilli(System.currentTimeMillis());
+        KeySnapshotStore store = new KeySnapshotStore(this.directory.resolve("keys.json"));
+        store.save(Arrays.asList(new KeySnapshotStore.Entry("ec", null, ec, fetchedAt),
+                new KeySnapshotStore.Entry("rsa", "RS256", rsa, fetchedAt)));
+
+        List<KeySnapshotStore.Entry> entries = store.load();
+        assertEquals(2, entries.size());
+        assertEquals(ec, entries.get(0).getPublicKey());
+        assertNull(entries.get(0).getAlgorithm());
+        assertEquals(rsa, entries.get(1).toJwk().getPublicKey());
+        assertEquals("RS256", entries.get(1).toJwk().getAlgorithm());
+        assertEquals(fetchedAt, entries.get(1).getFetchedAt());
+        try (Stream<Path> files = Files.list(this.directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testOutdatedMissingAndInvalidSnapshotsAreEmpty() throws Exception {
+        Path file = this.directory.resolve("keys.json");
+        KeySnapshotStore store = new KeySnapshotStore(file, Duration.ofHours(1));
+        assertTrue(store.load().isEmpty());
+        store.save(Collections.singletonList(new KeySnapshotStore.Entry("kid", null,
+                Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic(), Instant.now().minus(Duration.ofHours(2)))));
+        assertTrue(store.load().isEmpty());
+        Files.write(file, "[{\"kid\":".getBytes(StandardCharsets.UTF_8));
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    public void testProviderStartsWithSnapshotKeys() throws Exception {
+        PublicKey publicKey = Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic();
+        AtomicInteger reads = new AtomicInteger();
+        PublicKeyReader reader = url -> {
+            reads.incrementAndGet();
+            return new MockPublicKeyReader(publicKey).readPublicKey(url);
+        };
+        KeySnapshotStore store = new KeySnapshotStore(this.directory.resolve("keys.json"));
+        try (RefreshAheadJwkProvider provider = AWSAlbUserClaimsJwkProvider.createRefreshAheadProvider(
+                AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, reader, Duration.ofHours(1), store)) {
+            assertEquals(2, provider.prefetch(Arrays.asList("kid-1", "kid-2")));
+            provider.saveSnapshot();
+        }
+        assertEquals(2, reads.get());
+
+        try (RefreshAheadJwkProvider provider = AWSAlbUserClaimsJwkProvider.createRefreshAheadProvider(
+                AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, url -> {
+                    throw new IOException("key endpoint not available");
+                }, Duration.ofHours(1), store)) {
+            Jwk jwk = provider.getIfPresent("kid-1");
+            assertNotNull(jwk);
+            assertEquals(publicKey, jwk.getPublicKey());
+            assertEquals(publicKey, provider.get("kid-2").getPublicKey());
+        }
+    }
+}
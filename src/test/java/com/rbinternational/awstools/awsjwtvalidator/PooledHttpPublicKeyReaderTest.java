@@ -0,0 +1,119 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PooledHttpPublicKeyReaderTest {
+
+    private static final String PEM = "-----BEGIN PUBLIC KEY-----\n" +
+            "MFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAEfCMlcVFfgBWSovkSYXOBsZFHSrl7\n" +
+            "IVsuW6tdnYTiLr/ZJnXY+c7QkxGPFKGtaVBfK6Qoy/xpXA1VAVuW0N+jpA==\n" +
+            "-----END PUBLIC KEY-----\n";
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    private HttpServer server;
+
+    private String baseUrl;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/key", exchange -> respond(exchange, 200, PEM));
+        this.server.createContext("/missing", exchange -> respond(exchange, 404, "key not found"));
+        this.server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(1000);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, PEM);
+        });
+        this.server.start();
+        this.baseUrl = "http://localhost:" + this.server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void testReadsPublicKey() throws IOException {
+        PooledHttpPublicKeyReader reader = new PooledHttpPublicKeyReader();
+        assertEquals(PEM, reader.readPublicKey(new URL(this.baseUrl + "/key")));
+    }
+
+    @Test
+    public void testConnectionIsReused() throws IOException {
+        PooledHttpPublicKeyReader reader = new PooledHttpPublicKeyReader();
+        for (int i = 0; i < 5; i++) {
+            reader.readPublicKey(new URL(this.baseUrl + "/key"));
+        }
+        assertThrows(IOException.class, () -> reader.readPublicKey(new URL(this.baseUrl + "/missing")));
+        reader.readPublicKey(new URL(this.baseUrl + "/key"));
+        assertEquals(1, this.clientPorts.size());
+    }
+
+    @Test
+    public void testErrorResponseFails() {
+        PooledHttpPublicKeyReader reader = new PooledHttpPublicKeyReader();
+        IOException exception = assertThrows(FileNotFoundException.class,
+                () -> reader.readPublicKey(new URL(this.baseUrl + "/missing")));
+        assertEquals("key not found", exception.getMessage());
+    }
+
+    @Test
+    public void testReadTimeout() {
+        PooledHttpPublicKeyReader reader = new PooledHttpPublicKeyReader(1000, 100);
+        assertThrows(SocketTimeoutException.class, () -> reader.readPublicKey(new URL(this.baseUrl + "/slow")));
+    }
+
+    @Test
+    public void testKeyCanBeConvertedAndValidated() throws IOException {
+        PublicKey publicKey = Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic();
+        String pem = new MockPublicKeyReader(publicKey).readPublicKey(null);
+        this.server.createContext("/generated", exchange -> respond(exchange, 200, pem));
+        PooledHttpPublicKeyReader reader = new PooledHttpPublicKeyReader();
+        String read = reader.readPublicKey(new URL(this.baseUrl + "/generated"));
+        assertEquals(publicKey, Utils.publicKeyFromPEM(read, "EC"));
+    }
+
+    @Test
+    public void testKeyIsDecodedFromTheResponseStream() throws IOException {
+        PooledHttpPublicKeyReader reader = new PooledHttpPublicKeyReader();
+        byte[] der = reader.readPublicKeyDER(new URL(this.baseUrl + "/key"));
+        assertEquals(Utils.publicKeyFromPEM(PEM, "EC"), Utils.publicKeyFromDER(der, "EC"));
+        assertArrayEquals(der, new HttpPublicKeyReader().readPublicKeyDER(new URL(this.baseUrl + "/key")));
+        assertThrows(IOException.class, () -> reader.readPublicKeyDER(new URL(this.baseUrl + "/missing")));
+    }
+
+    private void respond(HttpExchange exchange, int code, String body) throws IOException {
+        this.clientPorts.add(exchange.getRemoteAddress().getPort());
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkProvider;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RefreshAheadJwkProviderTest {
+
+    private SwitchablePublicKeyReader reader;
+
+    private RefreshAheadJwkProvider provider;
+
+    @BeforeEach
+    public void setUp() {
+        this.reader = new SwitchablePublicKeyReader(Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic());
+        this.provider = AWSAlbUserClaimsJwkProvider.createRefreshAheadProvider(
+                AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, this.reader, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.provider.close();
+    }
+
+    @Test
+    public void testKnownKeyIsServedFromMemory() throws Exception {
+        Jwk first = this.provider.get("kid");
+        Jwk second = this.provider.get("kid");
+        assertSame(first, second);
+        assertEquals(1, this.reader.reads.get());
+    }
+
+    @Test
+    public void testRefreshReplacesKey() throws Exception {
+        this.provider.get("kid");
+        PublicKey rotated = Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic();
+        this.reader.publicKey = rotated;
+        this.provider.refresh();
+        assertEquals(rotated, this.provider.get("kid").getPublicKey());
+        assertEquals(2, this.reader.reads.get());
+    }
+
+    @Test
+    public void testFailedRefreshKeepsStaleKey() throws Exception {
+        PublicKey original = this.provider.get("kid").getPublicKey();
+        this.reader.failing = true;
+        this.provider.refresh();
+        assertEquals(original, this.provider.get("kid").getPublicKey());
+        assertEquals(2, this.reader.reads.get());
+    }
+
+    @Test
+    public void testFailedFetchOfUnknownKeyIsNotCached() {
+        try (RefreshAheadJwkProvider unguarded = new RefreshAheadJwkProvider(new AWSAlbUserClaimsJwkProvider(
+                AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, this.reader), Duration.ofHours(1))) {
+            this.reader.failing = true;
+            assertThrows(InvalidTokenException.class, () -> unguarded.get("kid"));
+            this.reader.failing = false;
+            assertDoesNotThrow(() -> unguarded.get("kid"));
+            assertEquals(2, this.reader.reads.get());
+        }
+    }
+
+    @Test
+    public void testAsyncMissDoesNotBlockScheduler() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try (RefreshAheadJwkProvider slow = new RefreshAheadJwkProvider(keyId -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return this.provider.get(keyId);
+        }, Duration.ofHours(1), scheduler)) {
+            CompletableFuture<Jwk> key = slow.getAsync("kid");
+            assertEquals("done", scheduler.submit(() -> "done").get(1, TimeUnit.SECONDS));
+            assertFalse(key.isDone());
+            release.countDown();
+            assertEquals("kid", key.get(5, TimeUnit.SECONDS).getId());
+        }
+        finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDefaultAlbProviderServesKeysFromRegistry() throws Exception {
+        JwkProvider defaultProvider = AWSAlbUserClaimsJwkProvider.createProvider(
+                AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, this.reader);
+        assertTrue(defaultProvider instanceof RefreshAheadJwkProvider);
+        Jwk first = defaultProvider.get("kid");
+        assertSame(first, ((RefreshAheadJwkProvider) defaultProvider).getIfPresent("kid"));
+        assertSame(first, defaultProvider.get("kid"));
+        assertEquals(1, this.reader.reads.get());
+    }
+
+    @Test
+    public void testCloseCancelsRefreshOnSharedScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+        try {
+            RefreshAheadJwkProvider shared = new RefreshAheadJwkProvider(this.provider, Duration.ofHours(1),
+                    scheduler);
+            assertEquals(1, scheduler.getQueue().size());
+            shared.close();
+            assertTrue(scheduler.getQueue().isEmpty());
+            assertFalse(scheduler.isShutdown());
+        }
+        finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testUnknownKeyIsRejectedByGuard() {
+        this.reader.missing = true;
+        InvalidTokenException exception = assertThrows(InvalidTokenException.class, () -> this.provider.get("kid"));
+        assertEquals(RejectionReason.UNKNOWN_KID, exception.getReason());
+        this.reader.missing = false;
+        assertThrows(InvalidTokenException.class, () -> this.provider.get("kid"));
+        assertEquals(1, this.reader.reads.get());
+    }
+
+    @Test
+    public void testFailedFetchIsRetried() throws Exception {
+        this.reader.failing = true;
+        InvalidTokenException exception = assertThrows(InvalidTokenException.class, () -> this.provider.get("kid"));
+        assertEquals(RejectionReason.KEY_FETCH_FAILED, exception.getReason());
+        this.reader.failing = false;
+        assertNotNull(this.provider.get("kid"));
+        assertEquals(2, this.reader.reads.get());
+    }
+
+    private static class SwitchablePublicKeyReader implements PublicKeyReader {
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private volatile PublicKey publicKey;
+
+        private volatile boolean failing;
+
+        private volatile boolean missing;
+
+        SwitchablePublicKeyReader(PublicKey publicKey) {
+            this.publicKey = publicKey;
+        }
+
+        @Override
+        public String readPublicKey(URL url) throws IOException {
+            this.reads.incrementAndGet();
+            if (this.failing) {
+                throw new IOException("key endpoint not available");
+            }
+            if (this.missing) {
+                throw new FileNotFoundException("key not found");
+            }
+            return new MockPublicKeyReader(this.publicKey).readPublicKey(url);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimpleValidationMetricsTest {
+
+    private static final String COGNITO_URL = "https://cognito-idp.eu-central-1.amazonaws.com/eu-central-1_xxzzyyzz";
+
+    private SimpleValidationMetrics metrics;
+
+    @BeforeEach
+    public void setUp() {
+        this.metrics = new SimpleValidationMetrics();
+        ValidationMetrics.register(this.metrics);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ValidationMetrics.unregister();
+    }
+
+    @Test
+    public void testRejectionReasonsAreCounted() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        AWSAlbAccessTokenValidator validator = new AWSAlbAccessTokenValidator(COGNITO_URL);
+        validator.setSigningKeyResolver(new UnitTestingSigningKeyResolver(keyPair.getPublic()));
+        validator.validateToken(Jwts.builder().setIssuer(COGNITO_URL).claim("token_use", "access")
+                .signWith(keyPair.getPrivate()).compact());
+        assertThrows(InvalidTokenException.class, () -> validator.validateToken(Jwts.builder()
+                .setIssuer(COGNITO_URL).claim("token_use", "access")
+                .setExpiration(new Date(System.currentTimeMillis() - 60 * 1000))
+                .signWith(keyPair.getPrivate()).compact()));
+        assertThrows(InvalidTokenException.class, () -> validator.validateToken(Jwts.builder()
+                .setIssuer(COGNITO_URL + "x").claim("token_use", "access")
+                .signWith(keyPair.getPrivate()).compact()));
+        assertThrows(InvalidTokenException.class, () -> validator.validateToken(Jwts.builder()
+                .setIssuer(COGNITO_URL)
+                .signWith(keyPair.getPrivate()).compact()));
+        assertThrows(InvalidTokenException.class, () -> validator.validateToken(Jwts.builder()
+                .setIssuer(COGNITO_URL).claim("token_use", "access")
+                .signWith(Keys.keyPairFor(SignatureAlgorithm.RS256).getPrivate()).compact()));
+        assertThrows(InvalidTokenException.class, () -> validator.validateToken("not a token"));
+
+        assertEquals(1, this.metrics.getValidations().getCount());
+        assertEquals(5, this.metrics.getRejections().getCount());
+        assertEquals(1, this.metrics.getRejectionCount(RejectionReason.EXPIRED));
+        assertEquals(1, this.metrics.getRejectionCount(RejectionReason.ISSUER_MISMATCH));
+        assertEquals(1, this.metrics.getRejectionCount(RejectionReason.TOKEN_USE_MISMATCH));
+        assertEquals(1, this.metrics.getRejectionCount(RejectionReason.BAD_SIGNATURE));
+        assertEquals(1, this.metrics.getRejectionCount(RejectionReason.MALFORMED));
+    }
+
+    @Test
+    public void testKeyCacheAndFetchesAreReported() {
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        AWSAlbUserClaimsTokenValidator validator = new AWSAlbUserClaimsTokenValidator(
+                new AWSAlbUserClaimsSigningKeyResolver(AWSAlbUserClaimsJwkProvider.createProvider(
+                        AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT,
+                        new MockPublicKeyReader(keyPair.getPublic()))));
+        String token = Jwts.builder().setHeaderParam("kid", "kid").setSubject("dummy")
+                .signWith(keyPair.getPrivate()).compact();
+        for (int i = 0; i < 4; i++) {
+            validator.validateToken(token);
+        }
+        assertEquals(3, this.metrics.getKeyCacheHitCount());
+        assertEquals(1, this.metrics.getKeyCacheMissCount());
+        assertEquals(0.75, this.metrics.getKeyCacheHitRatio());
+        assertEquals(1, this.metrics.getKeyFetches().getCount());
+        assertEquals(0, this.metrics.getKeyFetchFailureCount());
+        assertEquals(4, this.metrics.getKeyResolutions().getCount());
+        assertEquals(4, this.metrics.getValidations().getCount());
+    }
+
+    @Test
+    public void testNothingIsReportedWithoutListener() {
+        ValidationMetrics.unregister();
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        AWSAlbAccessTokenValidator validator = new AWSAlbAccessTokenValidator(COGNITO_URL);
+        validator.setSigningKeyResolver(new UnitTestingSigningKeyResolver(keyPair.getPublic()));
+        validator.validateToken(Jwts.builder().setIssuer(COGNITO_URL).claim("token_use", "access")
+                .signWith(keyPair.getPrivate()).compact());
+        assertEquals(0, this.metrics.getValidations().getCount());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileNanos(0.5));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1_000_000);
+        assertEquals(1023, histogram.getPercentileNanos(0.5));
+        assertEquals(1023, histogram.getPercentileNanos(0.99));
+        assertEquals((1L << 20) - 1, histogram.getPercentileNanos(1.0));
+        assertEquals(100, histogram.getCount());
+    }
+}
@@ -0,0 +1,140 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightJwkProviderTest {
+
+    private static final int CALLERS = 16;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        this.executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentMissesCollapseIntoOneFetch() throws Exception {
+        PublicKey publicKey = Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic();
+        CountingPublicKeyReader reader = new CountingPublicKeyReader(publicKey, false);
+        SingleFlightJwkProvider provider = new SingleFlightJwkProvider(
+                new AWSAlbUserClaimsJwkProvider(AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, reader));
+
+        List<Future<Jwk>> results = callConcurrently(provider, reader);
+
+        for (Future<Jwk> result : results) {
+            assertEquals(publicKey, result.get(5, TimeUnit.SECONDS).getPublicKey());
+        }
+        assertEquals(1, reader.reads.get());
+    }
+
+    @Test
+    public void testFailureIsPassedToEveryWaiter() throws Exception {
+        PublicKey publicKey = Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic();
+        CountingPublicKeyReader reader = new CountingPublicKeyReader(publicKey, true);
+        SingleFlightJwkProvider provider = new SingleFlightJwkProvider(
+                new AWSAlbUserClaimsJwkProvider(AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, reader));
+
+        List<Future<Jwk>> results = callConcurrently(provider, reader);
+
+        for (Future<Jwk> result : results) {
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> result.get(5, TimeUnit.SECONDS));
+            assertTrue(exception.getCause() instanceof InvalidTokenException);
+        }
+        assertEquals(1, reader.reads.get());
+    }
+
+    @Test
+    public void testCompletedFetchIsNotReused() throws Exception {
+        PublicKey publicKey = Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic();
+        CountingPublicKeyReader reader = new CountingPublicKeyReader(publicKey, false);
+        reader.release.countDown();
+        SingleFlightJwkProvider provider = new SingleFlightJwkProvider(
+                new AWSAlbUserClaimsJwkProvider(AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, reader));
+        provider.get("kid");
+        provider.get("kid");
+        assertEquals(2, reader.reads.get());
+    }
+
+    /**
+     * Starts all callers, waits until the first one is blocked in the reader and the others had time to join, then
+     * lets the read complete.
+     */
+    private List<Future<Jwk>> callConcurrently(SingleFlightJwkProvider provider, CountingPublicKeyReader reader)
+            throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(CALLERS);
+        List<Future<Jwk>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(this.executor.submit(() -> {
+                started.countDown();
+                return provider.get("kid");
+            }));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(reader.reading.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        reader.release.countDown();
+        return results;
+    }
+
+    private static class CountingPublicKeyReader implements PublicKeyReader {
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private final CountDownLatch reading = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final PublicKeyReader delegate;
+
+        private final boolean failing;
+
+        CountingPublicKeyReader(PublicKey publicKey, boolean failing) {
+            this.delegate = new MockPublicKeyReader(publicKey);
+            this.failing = failing;
+        }
+
+        @Override
+        public String readPublicKey(URL url) throws IOException {
+            this.reads.incrementAndGet();
+            this.reading.countDown();
+            try {
+                this.release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            if (this.failing) {
+                throw new IOException("key endpoint not available");
+            }
+            return this.delegate.readPublicKey(url);
+        }
+    }
+}
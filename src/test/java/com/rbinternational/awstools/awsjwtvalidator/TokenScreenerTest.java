@@ -0,0 +1,197 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.IncorrectClaimException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.MissingClaimException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Date;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenScreenerTest {
+
+    private static final String COGNITO_URL = "https://cognito-idp.eu-central-1.amazonaws.com/eu-central-1_xxzzyyzz";
+
+    private final KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+
+    private final TokenScreener screener = TokenScreener.forAccessTokens(COGNITO_URL);
+
+    @Test
+    public void testValidTokenPasses() {
+        assertDoesNotThrow(() -> this.screener.screen(Jwts.builder()
+                .setIssuer(COGNITO_URL)
+                .setExpiration(new Date(System.currentTimeMillis() + 60 * 1000))
+                .claim("nested", Jwts.claims().setIssuer("not the top-level issuer"))
+                .signWith(this.keyPair.getPrivate())
+                .compact()));
+    }
+
+    @Test
+    public void testMalformedTokensAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> this.screener.screen(""));
+        assertThrows(MalformedJwtException.class, () -> this.screener.screen("garbage"));
+        assertThrows(MalformedJwtException.class, () -> this.screener.screen("a.b.c.d"));
+        assertThrows(MalformedJwtException.class, () -> this.screener.screen("a b.c.d"));
+        assertThrows(MalformedJwtException.class, () -> this.screener.screen("eyJhbGciOiJSUzI1NiJ9.W10.c2ln"));
+        StringBuilder oversized = new StringBuilder();
+        while (oversized.length() <= TokenScreener.DEFAULT_MAX_LENGTH) {
+            oversized.append("eyJhbGciOiJSUzI1NiJ9");
+        }
+        assertThrows(MalformedJwtException.class, () -> this.screener.screen(oversized + ".e30.c2ln"));
+    }
+
+    @Test
+    public void testTokenIsScreenedWithinBytes() {
+        String token = Jwts.builder()
+                .setIssuer(COGNITO_URL)
+                .setExpiration(new Date(System.currentTimeMillis() + 60 * 1000))
+                .signWith(this.keyPair.getPrivate())
+                .compact();
+        byte[] header = ("Authorization: Bearer " + token + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        int offset = "Authorization: Bearer ".length();
+        assertDoesNotThrow(() -> this.screener.screen(header, offset, token.length()));
+        assertThrows(MalformedJwtException.class, () -> this.screener.screen(header, offset, token.length() + 1));
+        assertThrows(IllegalArgumentException.class, () -> this.screener.screen(header, offset, header.length));
+        byte[] expired = Jwts.builder()
+                .setIssuer(COGNITO_URL)
+                .setExpiration(new Date(System.currentTimeMillis() - 60 * 1000))
+                .signWith(this.keyPair.getPrivate())
+                .compact()
+                .getBytes(StandardCharsets.US_ASCII);
+        assertThrows(ExpiredJwtException.class, () -> this.screener.screen(expired, 0, expired.length));
+    }
+
+    @Test
+    public void testDisallowedAlgorithmIsRejected() {
+        String es256 = Jwts.builder()
+                .setIssuer(COGNITO_URL)
+                .signWith(Keys.keyPairFor(SignatureAlgorithm.ES256).getPrivate())
+                .compact();
+        assertThrows(SignatureException.class, () -> this.screener.screen(es256));
+        TokenScreener both = new TokenScreener(TokenScreener.DEFAULT_MAX_LENGTH,
+                EnumSet.of(SignatureAlgorithm.ES256, SignatureAlgorithm.RS256), COGNITO_URL);
+        assertDoesNotThrow(() -> both.screen(es256));
+    }
+
+    @Test
+    public void testInspectReadsKeyId() {
+        TokenScreener.Screening screening = TokenScreener.forAnyAlgorithm().inspect(Jwts.builder()
+                .setHeaderParam("kid", "key-1")
+                .setSubject("user")
+                .signWith(Keys.keyPairFor(SignatureAlgorithm.ES384).getPrivate())
+                .compact());
+        assertNull(screening.getReason());
+        assertEquals("key-1", screening.getKeyId());
+        TokenScreener.Screening rejected = TokenScreener.forUserClaims().inspect(Jwts.builder()
+                .setHeaderParam("kid", "key-2")
+                .setSubject("user")
+                .signWith(this.keyPair.getPrivate())
+                .compact());
+        assertEquals(RejectionReason.BAD_SIGNATURE, rejected.getReason());
+        assertEquals("key-2", rejected.getKeyId());
+        assertEquals(RejectionReason.MALFORMED, this.screener.inspect("garbage").getReason());
+    }
+
+    @Test
+    public void testTimeAndIssuerAreChecked() {
+        ExpiredJwtException expired = assertThrows(ExpiredJwtException.class, () -> this.screener.screen(
+                Jwts.builder()
+                        .setSubject("expired")
+                        .setIssuer(COGNITO_URL)
+                        .setExpiration(new Date(System.currentTimeMillis() - 60 * 1000))
+                        .signWith(this.keyPair.getPrivate())
+                        .compact()));
+        assertEquals("expired", expired.getClaims().getSubject());
+        assertThrows(PrematureJwtException.class, () -> this.screener.screen(Jwts.builder()
+                .setIssuer(COGNITO_URL)
+                .setNotBefore(new Date(System.currentTimeMillis() + 60 * 1000))
+                .signWith(this.keyPair.getPrivate())
+                .compact()));
+        assertThrows(MissingClaimException.class, () -> this.screener.screen(Jwts.builder()
+                .setSubject("noissuer")
+                .signWith(this.keyPair.getPrivate())
+                .compact()));
+        IncorrectClaimException wrongIssuer = assertThrows(IncorrectClaimException.class,
+                () -> this.screener.screen(Jwts.builder()
+                        .setIssuer(COGNITO_URL + "x")
+                        .signWith(this.keyPair.getPrivate())
+                        .compact()));
+        assertEquals("iss", wrongIssuer.getClaimName());
+    }
+
+    @Test
+    public void testCheckReturnsReason() {
+        assertNull(this.screener.check(Jwts.builder()
+                .setIssuer(COGNITO_URL)
+                .signWith(this.keyPair.getPrivate())
+                .compact()));
+        assertEquals(RejectionReason.MALFORMED, this.screener.check((String) null));
+        assertEquals(RejectionReason.MALFORMED, this.screener.check("garbage"));
+        assertEquals(RejectionReason.MALFORMED, this.screener.check("a.b.c.d"));
+        assertEquals(RejectionReason.MALFORMED, this.screener.check("eyJhbGciOiJSUzI1NiJ9.W10.c2ln"));
+        assertEquals(RejectionReason.MALFORMED, this.screener.check("bm90IGpzb24.e30.c2ln"));
+        assertEquals(RejectionReason.UNSUPPORTED, this.screener.check("eyJhbGciOiJSUzI1NiJ9.e30."));
+        assertEquals(RejectionReason.BAD_SIGNATURE, this.screener.check(Jwts.builder()
+                .setIssuer(COGNITO_URL)
+                .signWith(Keys.keyPairFor(SignatureAlgorithm.ES256).getPrivate())
+                .compact()));
+        assertEquals(RejectionReason.NOT_YET_VALID, this.screener.check(Jwts.builder()
+                .setIssuer(COGNITO_URL)
+                .setNotBefore(new Date(System.currentTimeMillis() + 60 * 1000))
+                .signWith(this.keyPair.getPrivate())
+                .compact()));
+        assertEquals(RejectionReason.ISSUER_MISMATCH, this.screener.check(Jwts.builder()
+                .setIssuer(COGNITO_URL + "x")
+                .signWith(this.keyPair.getPrivate())
+                .compact()));
+        byte[] expired = Jwts.builder()
+                .setIssuer(COGNITO_URL)
+                .setExpiration(new Date(System.currentTimeMillis() - 60 * 1000))
+                .signWith(this.keyPair.getPrivate())
+                .compact()
+                .getBytes(StandardCharsets.US_ASCII);
+        assertEquals(RejectionReason.EXPIRED, this.screener.check(expired, 0, expired.length));
+    }
+
+    @Test
+    public void testLightweightScreeningRejectionIsStackless() {
+        AWSAlbUserClaimsTokenValidator validator = new AWSAlbUserClaimsTokenValidator(
+                new UnitTestingSigningKeyResolver(Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic()));
+        validator.setTokenScreener(TokenScreener.forUserClaims());
+        validator.setRejectionMode(RejectionMode.LIGHTWEIGHT);
+        for (String token : new String[]{"garbage", "bm90IGpzb24.e30.c2ln", "eyJhbGciOiJFUzI1NiJ9.e30."}) {
+            InvalidTokenException rejection = validator.tryValidateToken(token).getException();
+            assertEquals(0, rejection.getStackTrace().length);
+            assertNull(rejection.getCause());
+        }
+    }
+
+    @Test
+    public void testScreenedTokenSkipsKeyLookup() {
+        AWSAlbUserClaimsTokenValidator validator = new AWSAlbUserClaimsTokenValidator(
+                new AWSAlbUserClaimsSigningKeyResolver(AWSAlbUserClaimsJwkProvider.createProvider(
+                        AWSAlbUserClaimsJwkProvider.EU_CENTRAL_1_ALB_KEY_ENDPOINT, url -> {
+                            throw new AssertionError("no key must be read");
+                        })));
+        KeyPair es256 = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        String expired = Jwts.builder()
+                .setHeaderParam("kid", "kid")
+                .setExpiration(new Date(System.currentTimeMillis() - 60 * 1000))
+                .signWith(es256.getPrivate())
+                .compact();
+        ValidationResult result = validator.tryValidateToken(expired);
+        assertEquals(RejectionReason.EXPIRED, result.getReason());
+        assertEquals(RejectionReason.EXPIRED, validator.validateTokenAsync(expired).toCompletableFuture()
+                .handle((claims, failure) -> ((InvalidTokenException) failure).getReason()).join());
+    }
+}
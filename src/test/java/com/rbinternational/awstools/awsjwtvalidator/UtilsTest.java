@@ -1,10 +1,16 @@
 package com.rbinternational.awstools.awsjwtvalidator;
 
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
 import org.junit.jupiter.api.Test;
 
 import java.security.Key;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class UtilsTest {
 
@@ -18,4 +24,35 @@ public class UtilsTest {
         assertTrue(actual.toString().contains("56148891291250662430583874808994653749027620467412081497268982441629762858687"));
         assertTrue(actual.toString().contains("secp256r1 [NIST P-256, X9.62 prime256v1]"));
     }
+
+    @Test
+    public void testPEMBundleWithECAndRSAKeys() {
+        PublicKey ec = Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic();
+        PublicKey rsa = Keys.keyPairFor(SignatureAlgorithm.RS256).getPublic();
+        String bundle = pem(ec, 64, "\n") + pem(rsa, 76, "\r\n")
+                + "-----BEGIN PUBLIC KEY-----" + Encoders.BASE64.encode(ec.getEncoded()) + "-----END PUBLIC KEY-----";
+        List<PublicKey> publicKeys = Utils.publicKeysFromPEM(bundle);
+        assertEquals(Arrays.asList(ec, rsa, ec), publicKeys);
+        assertEquals("RSA", Utils.keyAlgorithm(rsa.getEncoded()));
+        assertArrayEquals(ec.getEncoded(), Utils.decodePEM(bundle));
+        assertArrayEquals(rsa.getEncoded(), Utils.decodePEM(Encoders.BASE64.encode(rsa.getEncoded())));
+    }
+
+    @Test
+    public void testInvalidPEMIsRejected() {
+        assertThrows(PEMDecodingException.class, () -> Utils.decodePEM(""));
+        assertThrows(PEMDecodingException.class, () -> Utils.decodePEM("-----BEGIN PUBLIC KEY-----\n-----END PUBLIC KEY-----"));
+        assertThrows(PEMDecodingException.class, () -> Utils.decodePEM("MFkw*EwYH"));
+        assertThrows(PEMDecodingException.class, () -> Utils.decodePEM("MFkwE"));
+        assertThrows(PEMDecodingException.class, () -> Utils.publicKeysFromPEM("AAAA"));
+    }
+
+    private static String pem(PublicKey publicKey, int lineLength, String eol) {
+        String base64 = Encoders.BASE64.encode(publicKey.getEncoded());
+        StringBuilder pem = new StringBuilder("-----BEGIN PUBLIC KEY-----").append(eol);
+        for (int i = 0; i < base64.length(); i += lineLength) {
+            pem.append(base64, i, Math.min(base64.length(), i + lineLength)).append(eol);
+        }
+        return pem.append("-----END PUBLIC KEY-----").append(eol).toString();
+    }
 }
@@ -0,0 +1,104 @@
+package com.rbinternational.awstools.awsjwtvalidator;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs on JDK 21+ only, with 2 carrier threads (see the <code>jdk21</code> profile). A few hundred virtual threads
+ * look up a key while the fetch blocks on a latch, which a probe virtual thread releases - if the waiting threads
+ * pinned the carriers, neither the remaining lookups nor the probe would run.
+ */
+public class VirtualThreadKeyFetchTest {
+
+    private static final int THREADS = 500;
+
+    private static final PublicKey PUBLIC_KEY = Keys.keyPairFor(SignatureAlgorithm.ES256).getPublic();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private final JwkProvider slowProvider = keyId -> {
+        awaitRelease();
+        return new PublicKeyJwk(keyId, "ES256", PUBLIC_KEY);
+    };
+
+    @Test
+    public void testSlowFetchOnPoolDoesNotPinCarriers() throws Exception {
+        assertAllResolved(new CachingJwkProvider(this.slowProvider, 5, Duration.ofHours(1)));
+    }
+
+    @Test
+    public void testSlowFetchOnVirtualThreadDoesNotPinCarriers() throws Exception {
+        assertAllResolved(new SingleFlightJwkProvider(this.slowProvider));
+    }
+
+    @Test
+    public void testSlowRefreshAheadFetchDoesNotPinCarriers() throws Exception {
+        try (RefreshAheadJwkProvider provider = new RefreshAheadJwkProvider(this.slowProvider)) {
+            assertAllResolved(provider);
+        }
+    }
+
+    @Test
+    public void testSlowKeySetDownloadDoesNotPinCarriers() throws Exception {
+        assertAllResolved(new KeySetJwkProvider(() -> {
+            awaitRelease();
+            return List.<Jwk>of(new PublicKeyJwk("kid", "ES256", PUBLIC_KEY));
+        }, KeySetJwkProvider.DEFAULT_REFRESH_COOLDOWN, KeySetJwkProvider.DEFAULT_GRACE_PERIOD,
+                KeySetJwkProvider.DEFAULT_MAX_AGE));
+        assertEquals(1, this.fetches.get());
+    }
+
+    private void assertAllResolved(JwkProvider provider) throws Exception {
+        CountDownLatch started = new CountDownLatch(THREADS);
+        AtomicInteger resolved = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < THREADS; i++) {
+                executor.execute(() -> {
+                    started.countDown();
+                    try {
+                        if ("kid".equals(provider.get("kid").getId())) {
+                            resolved.incrementAndGet();
+                        }
+                    }
+                    catch (JwkException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS), "all virtual threads must start while the fetch blocks");
+            Thread probe = Thread.ofVirtual().start(this.release::countDown);
+            assertTrue(probe.join(Duration.ofSeconds(5)), "a carrier thread must be free for the probe");
+        }
+        assertEquals(THREADS, resolved.get());
+    }
+
+    private void awaitRelease() {
+        this.fetches.incrementAndGet();
+        try {
+            if (!this.release.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("key fetch was not released");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}